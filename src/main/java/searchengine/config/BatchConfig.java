@@ -0,0 +1,18 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "batch-settings")
+public class BatchConfig {
+    private int pages = 50;
+    private int indexes = 20000;
+    private long flushInterval = 1000;
+    private long frequencyFlushInterval = 10000;
+    private int deleteChunk = 1000;
+}
@@ -1,23 +1,70 @@
 package searchengine.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import searchengine.dto.searching.SearchResponse;
+import searchengine.services.Lemmatizer;
+import searchengine.services.SearchCache;
 
 import java.util.List;
 
 @Configuration
 @EnableCaching
 public class CacheConfig {
+    public static final String LEMMATIZER_CACHE = "lemmatizerWords";
+    public static final String SEARCH_RANKING_CACHE = "searchRanking";
+    public static final String SEARCH_RESPONSE_CACHE = "searchResults";
+
+    @Bean
+    public Cache<String, Lemmatizer.WordForms> lemmatizerCache(CacheSettings cacheSettings) {
+        return Caffeine.newBuilder()
+                .maximumSize(cacheSettings.getLemmatizerSize())
+                .recordStats()
+                .build();
+    }
+
+    @Bean
+    public Cache<SearchCache.RankingKey, SearchCache.RankedPages> searchRankingCache(CacheSettings cacheSettings) {
+        return Caffeine.newBuilder()
+                .maximumSize(cacheSettings.getSearchSize())
+                .expireAfterWrite(cacheSettings.getSearchTtl())
+                .recordStats()
+                .build();
+    }
+
+    @Bean
+    public Cache<SearchCache.ResponseKey, SearchResponse> searchResponseCache(CacheSettings cacheSettings) {
+        return Caffeine.newBuilder()
+                .maximumSize(cacheSettings.getSearchSize())
+                .expireAfterWrite(cacheSettings.getSearchTtl())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Кэши регистрируются в CacheManager, чтобы actuator публиковал их статистику.
+     */
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(Cache<String, Lemmatizer.WordForms> lemmatizerCache,
+                                     Cache<SearchCache.RankingKey, SearchCache.RankedPages> searchRankingCache,
+                                     Cache<SearchCache.ResponseKey, SearchResponse> searchResponseCache) {
         SimpleCacheManager cacheManager = new SimpleCacheManager();
         cacheManager.setCaches(List.of(
-                new ConcurrentMapCache("searchResults")
+                new CaffeineCache(SEARCH_RANKING_CACHE, asObjectCache(searchRankingCache)),
+                new CaffeineCache(SEARCH_RESPONSE_CACHE, asObjectCache(searchResponseCache)),
+                new CaffeineCache(LEMMATIZER_CACHE, asObjectCache(lemmatizerCache))
         ));
         return cacheManager;
     }
+
+    @SuppressWarnings("unchecked")
+    private static Cache<Object, Object> asObjectCache(Cache<?, ?> cache) {
+        return (Cache<Object, Object>) cache;
+    }
 }
@@ -0,0 +1,19 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "cache-settings")
+public class CacheSettings {
+    private long lemmatizerSize = 100000;
+    private long searchSize = 1000;
+    private Duration searchTtl = Duration.ofMinutes(10);
+    private Duration statisticsTtl = Duration.ofSeconds(2);
+}
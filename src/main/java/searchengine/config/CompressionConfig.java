@@ -0,0 +1,16 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "compression-settings")
+public class CompressionConfig {
+    private int level = 6;
+    private boolean migrate = false;
+    private int migrationBatch = 200;
+}
@@ -0,0 +1,23 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "crawler-settings")
+public class CrawlerConfig {
+    private int threadsPerSite = 4;
+    private int maxThreads = 16;
+    private int maxThreadsPerHost = 4;
+    private int maxPendingPages = 100;
+    private int maxDepth = 0;
+    private int maxPages = 0;
+    private boolean incremental = false;
+    private boolean resume = false;
+    private boolean sitemaps = true;
+    private int maxSitemaps = 100;
+}
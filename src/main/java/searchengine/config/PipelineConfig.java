@@ -0,0 +1,17 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "pipeline-settings")
+public class PipelineConfig {
+    private int lemmatizeThreads = 0;
+    private int lemmatizeQueue = 200;
+    private int persistThreads = 1;
+    private int persistQueue = 200;
+}
@@ -0,0 +1,22 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "rate-settings")
+public class RateConfig {
+    private Duration initialDelay = Duration.ofMillis(200);
+    private Duration minDelay = Duration.ofMillis(50);
+    private Duration maxDelay = Duration.ofSeconds(30);
+    private Duration delayStep = Duration.ofMillis(20);
+    private Duration targetLatency = Duration.ofSeconds(1);
+    private Duration maxRetryAfter = Duration.ofMinutes(10);
+    private boolean respectCrawlDelay = true;
+}
@@ -0,0 +1,20 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "search-settings")
+public class SearchConfig {
+    private String backend = "memory";
+    private int threads = 4;
+    private int queueCapacity = 100;
+    private Duration siteTimeout = Duration.ofSeconds(2);
+    private double maxLemmaShare = 0.8;
+}
@@ -0,0 +1,31 @@
+package searchengine.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class SearchExecutorConfig {
+
+    /**
+     * Пул для параллельного поиска по сайтам. Очередь ограничена: при переполнении
+     * задача отклоняется, и сайт попадает в ответ как не успевший.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService searchExecutor(SearchConfig searchConfig) {
+        AtomicInteger number = new AtomicInteger();
+        int threads = Math.max(1, searchConfig.getThreads());
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, searchConfig.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "search-" + number.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+}
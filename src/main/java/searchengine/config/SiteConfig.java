@@ -3,9 +3,17 @@ package searchengine.config;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.Duration;
+
 @Setter
 @Getter
 public class SiteConfig {
     private String url;
     private String name;
+    /**
+     * Переопределения rate-settings для сайта, null - общие значения.
+     */
+    private Duration minDelay;
+    private Duration maxDelay;
+    private Integer maxConnections;
 }
@@ -24,8 +24,9 @@ public class ApiController {
     }
 
     @GetMapping("/startIndexing")
-    public BasicResponse startIndexing() {
-        return indexingService.startIndexing();
+    public BasicResponse startIndexing(@RequestParam(name = "incremental", required = false) Boolean incremental,
+                                       @RequestParam(name = "resume", required = false) Boolean resume) {
+        return indexingService.startIndexing(incremental, resume);
     }
 
     @GetMapping("/stopIndexing")
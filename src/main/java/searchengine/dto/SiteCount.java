@@ -0,0 +1,11 @@
+package searchengine.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class SiteCount {
+    private Integer siteId;
+    private Long count;
+}
@@ -0,0 +1,21 @@
+package searchengine.dto.indexing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Сохранённые признаки версии страницы для инкрементальной переиндексации.
+ */
+@AllArgsConstructor
+@Getter
+public class PageValidators {
+    private Integer id;
+    private String path;
+    private Integer code;
+    private String contentHash;
+    private String etag;
+    private String lastModified;
+    private LocalDateTime indexedAt;
+}
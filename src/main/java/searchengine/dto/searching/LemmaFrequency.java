@@ -0,0 +1,12 @@
+package searchengine.dto.searching;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class LemmaFrequency {
+    private Integer siteId;
+    private String lemma;
+    private Integer frequency;
+}
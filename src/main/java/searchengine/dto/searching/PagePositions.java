@@ -0,0 +1,11 @@
+package searchengine.dto.searching;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class PagePositions {
+    private Integer pageId;
+    private byte[] positions;
+}
@@ -4,13 +4,12 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
-import searchengine.model.PageEntity;
 
 @AllArgsConstructor
 @Getter
 @Setter
 @ToString
 public class PageRankingResult {
-    private PageEntity page;
+    private Integer pageId;
     private Double totalRanking;
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+package searchengine.dto.searching;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@AllArgsConstructor
+@Getter
+@Setter
+public class PageSearchData {
+    private Integer id;
+    private String path;
+    private String title;
+    private String text;
+}
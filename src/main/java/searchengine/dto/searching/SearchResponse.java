@@ -1,5 +1,6 @@
 package searchengine.dto.searching;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -14,10 +15,21 @@ public class SearchResponse extends BasicResponse {
     private int count;
     private List<SearchDataItem> data;
 
-    @Builder
+    /**
+     * Не все сайты ответили за отведённое время, результаты неполные.
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean partial;
+
     public SearchResponse(int count, List<SearchDataItem> data) {
+        this(count, data, false);
+    }
+
+    @Builder
+    public SearchResponse(int count, List<SearchDataItem> data, boolean partial) {
         super(true);
         this.count = count;
         this.data = data;
+        this.partial = partial;
     }
 }
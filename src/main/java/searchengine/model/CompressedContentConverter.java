@@ -0,0 +1,22 @@
+package searchengine.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.RequiredArgsConstructor;
+import searchengine.services.ContentCodec;
+
+@Converter
+@RequiredArgsConstructor
+public class CompressedContentConverter implements AttributeConverter<String, byte[]> {
+    private final ContentCodec contentCodec;
+
+    @Override
+    public byte[] convertToDatabaseColumn(String content) {
+        return contentCodec.compress(content);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] data) {
+        return contentCodec.decompress(data);
+    }
+}
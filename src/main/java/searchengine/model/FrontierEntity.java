@@ -0,0 +1,35 @@
+package searchengine.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Ссылка из очереди обхода, которая найдена, но ещё не обработана.
+ * Таблица служит контрольной точкой для продолжения прерванного обхода.
+ */
+@Entity
+@Table(name = "crawl_frontier", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_site_path", columnNames = {"site_id", "path"})
+})
+@NoArgsConstructor
+@Getter
+@Setter
+public class FrontierEntity {
+    public static final int MAX_PATH_LENGTH = 512;
+    public static final int MAX_URL_LENGTH = 2048;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+    @ManyToOne
+    @JoinColumn(name = "site_id", nullable = false)
+    private SiteEntity site;
+    @Column(nullable = false, length = MAX_PATH_LENGTH)
+    private String path;
+    @Column(nullable = false, length = MAX_URL_LENGTH)
+    private String url;
+    @Column(nullable = false)
+    private int depth;
+}
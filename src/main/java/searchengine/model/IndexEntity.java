@@ -25,6 +25,8 @@ public class IndexEntity {
     private LemmaEntity lemma;
     @Column(nullable = false)
     private float ranking;
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private byte[] positions;
     @Override
     public String toString() {
         return "IndexEntity{" +
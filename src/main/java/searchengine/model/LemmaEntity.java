@@ -9,8 +9,8 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
-@Table(name = "lemma", indexes = {
-        @Index(name = "idx_site_lemma", columnList = "site_id, lemma")
+@Table(name = "lemma", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_site_lemma", columnNames = {"site_id", "lemma"})
 })
 @NoArgsConstructor
 @Getter
@@ -22,7 +22,7 @@ public class LemmaEntity {
     @ManyToOne
     @JoinColumn(name = "site_id", nullable = false)
     private SiteEntity site;
-    @Column(nullable = false, columnDefinition = "VARCHAR(255)")
+    @Column(nullable = false, columnDefinition = "VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin")
     private String lemma;
     @Column(nullable = false)
     private int frequency;
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -26,8 +27,24 @@ public class PageEntity {
     private String path;
     @Column(nullable = false)
     private int code;
-    @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
+    @Convert(converter = CompressedContentConverter.class)
+    @Column(columnDefinition = "MEDIUMBLOB", nullable = false)
     private String content;
+    @Column(columnDefinition = "TEXT")
+    private String title;
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String text;
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    @Column(length = 255)
+    private String etag;
+    @Column(name = "last_modified", length = 64)
+    private String lastModified;
+    /**
+     * Время последней записи или подтверждения содержимого, с ним сравнивается lastmod из sitemap.
+     */
+    @Column(name = "indexed_at")
+    private LocalDateTime indexedAt;
     @OneToMany(mappedBy = "page", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<IndexEntity> indexes = new ArrayList<>();
     @Override
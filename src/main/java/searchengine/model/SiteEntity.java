@@ -31,6 +31,12 @@ public class SiteEntity {
     private String url;
     @Column(nullable = false, columnDefinition = "VARCHAR(255)")
     private String name;
+    /**
+     * Поколение данных сайта, по которому выполняется поиск. Новое поколение строится
+     * в отдельной строке sites и становится действующим после успешной индексации.
+     */
+    @Column(nullable = false, columnDefinition = "TINYINT(1) NOT NULL DEFAULT 1")
+    private boolean live;
     @OneToMany(mappedBy = "site", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<PageEntity> pages = new ArrayList<>();
     @OneToMany(mappedBy = "site", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
@@ -45,6 +51,7 @@ public class SiteEntity {
                 ", lastError='" + lastError + '\'' +
                 ", url='" + url + '\'' +
                 ", name='" + name + '\'' +
+                ", live=" + live +
                 '}';
     }
 
@@ -53,7 +60,7 @@ public class SiteEntity {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         SiteEntity site = (SiteEntity) o;
-        return Objects.equals(url, site.url);
+        return id == site.id && Objects.equals(url, site.url);
     }
     @Override
     public int hashCode() {
@@ -1,18 +1,23 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
-import org.springframework.transaction.annotation.Transactional;
+import searchengine.dto.SiteCount;
+import searchengine.dto.searching.LemmaFrequency;
 import searchengine.model.LemmaEntity;
-import searchengine.model.SiteEntity;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface LemmaRepository extends JpaRepository<LemmaEntity, Integer> {
-    LemmaEntity findBySiteAndLemma(SiteEntity site, String lemma);
 
-    @Modifying
-    @Transactional
-    @Query("UPDATE LemmaEntity l SET l.frequency = l.frequency + 1 WHERE l.site = :site AND l.lemma = :lemma")
-    void updateLemmaFrequency(@Param("site") SiteEntity site, @Param("lemma") String lemma);
+    @Query("SELECT new searchengine.dto.searching.LemmaFrequency(l.site.id, l.lemma, l.frequency) " +
+            "FROM LemmaEntity l WHERE l.site.id IN :siteIds AND l.lemma IN :lemmas")
+    List<LemmaFrequency> findFrequencies(@Param("siteIds") Collection<Integer> siteIds,
+                                         @Param("lemmas") Collection<String> lemmas);
+
+    @Query("SELECT new searchengine.dto.SiteCount(l.site.id, COUNT(l)) " +
+            "FROM LemmaEntity l WHERE l.site.id IN :siteIds GROUP BY l.site.id")
+    List<SiteCount> countBySiteIds(@Param("siteIds") Collection<Integer> siteIds);
 }
@@ -3,18 +3,41 @@ package searchengine.repositories;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import searchengine.dto.SiteCount;
+import searchengine.dto.indexing.PageValidators;
+import searchengine.dto.searching.PageSearchData;
 import searchengine.model.PageEntity;
 import searchengine.model.SiteEntity;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface PageRepository extends JpaRepository<PageEntity, Integer> {
     PageEntity findBySiteAndPath(@Param("site") SiteEntity site, @Param("path") String path);
 
-    @Query("SELECT p FROM PageEntity p " +
+    @Query("SELECT p.path FROM PageEntity p WHERE p.site.id = :siteId")
+    List<String> findPathsBySiteId(@Param("siteId") Integer siteId);
+
+    @Query("SELECT p.id FROM PageEntity p " +
             "JOIN IndexEntity i ON p.id = i.page.id " +
             "JOIN LemmaEntity l ON i.lemma.id = l.id " +
             "WHERE l.lemma = :lemma " +
-            "AND p.site.id = :siteId")
-    List<PageEntity> findPagesBySiteIdAndLemma(Integer siteId, String lemma);
+            "AND p.site.id = :siteId " +
+            "ORDER BY p.id")
+    List<Integer> findPageIdsBySiteIdAndLemma(@Param("siteId") Integer siteId, @Param("lemma") String lemma);
+
+    @Query("SELECT new searchengine.dto.searching.PageSearchData(p.id, p.path, p.title, p.text) " +
+            "FROM PageEntity p WHERE p.id IN :ids")
+    List<PageSearchData> findSearchDataByIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT new searchengine.dto.SiteCount(p.site.id, COUNT(p)) " +
+            "FROM PageEntity p WHERE p.site.id IN :siteIds GROUP BY p.site.id")
+    List<SiteCount> countBySiteIds(@Param("siteIds") Collection<Integer> siteIds);
+
+    @Query("SELECT new searchengine.dto.indexing.PageValidators(p.id, p.path, p.code, p.contentHash, p.etag, p.lastModified, p.indexedAt) " +
+            "FROM PageEntity p WHERE p.site.id = :siteId")
+    List<PageValidators> findValidatorsBySiteId(@Param("siteId") Integer siteId);
+
+    @Query("SELECT p.content FROM PageEntity p WHERE p.id = :id")
+    String findContentById(@Param("id") Integer id);
 }
@@ -1,8 +1,26 @@
 package searchengine.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.SiteEntity;
 
+import java.util.List;
+
 public interface SiteRepository extends JpaRepository<SiteEntity, Integer> {
-    SiteEntity findByUrl(String url);
+    SiteEntity findByUrlAndLiveTrue(String url);
+
+    List<SiteEntity> findByUrlAndLiveFalse(String url);
+
+    List<SiteEntity> findAllByLiveTrue();
+
+    /**
+     * Делает действующим поколение id, остальные поколения сайта - недействующими, одним запросом.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE sites SET live = (id = :id) WHERE url = :url", nativeQuery = true)
+    void promote(@Param("url") String url, @Param("id") int id);
 }
@@ -0,0 +1,112 @@
+package searchengine.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import searchengine.config.CompressionConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Сжатие HTML страниц для хранения в pages.content.
+ * Сжатые данные начинаются с нулевого байта, всё остальное считается
+ * несжатым текстом в UTF-8 (строки, записанные до включения сжатия).
+ */
+@Component
+public class ContentCodec {
+    private static final byte COMPRESSED = 0;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final CompressionConfig compressionConfig;
+    private final Counter rawBytes;
+    private final Counter compressedBytes;
+
+    public ContentCodec(CompressionConfig compressionConfig, MeterRegistry meterRegistry) {
+        this.compressionConfig = compressionConfig;
+        rawBytes = meterRegistry.counter("pages.content.raw.bytes");
+        compressedBytes = meterRegistry.counter("pages.content.compressed.bytes");
+        Gauge.builder("pages.content.compression.ratio", this, ContentCodec::getCompressionRatio)
+                .register(meterRegistry);
+    }
+
+    /**
+     * SHA-256 содержимого страницы в шестнадцатеричном виде, по нему определяется,
+     * изменилась ли страница с прошлой индексации.
+     */
+    public static String hash(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public byte[] compress(String content) {
+        if (content == null || content.isEmpty()) {
+            return new byte[0];
+        }
+        byte[] input = content.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(compressionConfig.getLevel());
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 4 + 16);
+            output.write(COMPRESSED);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            byte[] result = output.toByteArray();
+            rawBytes.increment(input.length);
+            compressedBytes.increment(result.length);
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public String decompress(byte[] data) {
+        if (data == null || data.length == 0) {
+            return "";
+        }
+        if (!isCompressed(data)) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 1, data.length - 1);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Повреждённые сжатые данные страницы");
+                }
+                output.write(buffer, 0, count);
+            }
+            return output.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public boolean isCompressed(byte[] data) {
+        return data.length > 0 && data[0] == COMPRESSED;
+    }
+
+    public double getCompressionRatio() {
+        double compressed = compressedBytes.count();
+        return compressed == 0 ? 0 : rawBytes.count() / compressed;
+    }
+}
@@ -0,0 +1,74 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.CompressionConfig;
+import searchengine.services.crawler.CrawlExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Переводит pages.content из MEDIUMTEXT в MEDIUMBLOB и, если включено
+ * compression-settings.migrate, в фоне сжимает ранее сохранённые страницы.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ContentCompressionMigration implements ApplicationRunner {
+    private final JdbcTemplate jdbcTemplate;
+    private final ContentCodec contentCodec;
+    private final CompressionConfig compressionConfig;
+    private final CrawlExecutor crawlExecutor;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String type = jdbcTemplate.query("SELECT DATA_TYPE FROM information_schema.COLUMNS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'pages' AND COLUMN_NAME = 'content'",
+                rs -> rs.next() ? rs.getString(1) : null);
+        if (type != null && type.toLowerCase().contains("text")) {
+            log.info("Изменение типа pages.content на MEDIUMBLOB");
+            jdbcTemplate.execute("ALTER TABLE pages MODIFY content MEDIUMBLOB NOT NULL");
+        }
+
+        if (compressionConfig.isMigrate()) {
+            crawlExecutor.newThread("content-compression", this::compressExistingPages).start();
+        }
+    }
+
+    private void compressExistingPages() {
+        int lastId = 0;
+        long compressed = 0;
+        try {
+            while (true) {
+                List<Object[]> rows = new ArrayList<>();
+                List<Integer> ids = new ArrayList<>();
+                jdbcTemplate.query("SELECT id, content FROM pages WHERE id > ? ORDER BY id LIMIT ?", rs -> {
+                    int id = rs.getInt(1);
+                    byte[] content = rs.getBytes(2);
+                    ids.add(id);
+                    if (content != null && content.length > 0 && !contentCodec.isCompressed(content)) {
+                        rows.add(new Object[]{contentCodec.compress(contentCodec.decompress(content)), id});
+                    }
+                }, lastId, compressionConfig.getMigrationBatch());
+                if (ids.isEmpty()) {
+                    break;
+                }
+                if (!rows.isEmpty()) {
+                    jdbcTemplate.batchUpdate("UPDATE pages SET content = ? WHERE id = ?", rows);
+                    compressed += rows.size();
+                }
+                lastId = ids.get(ids.size() - 1);
+                log.info("Сжатие страниц: обработано до id " + lastId + ", сжато " + compressed
+                        + ", коэффициент сжатия " + String.format("%.2f", contentCodec.getCompressionRatio()));
+            }
+            log.info("Сжатие страниц завершено, сжато " + compressed);
+        } catch (Exception e) {
+            log.error("Ошибка сжатия страниц - " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.BatchConfig;
+import searchengine.model.PageEntity;
+import searchengine.services.crawler.FrontierStore;
+import searchengine.services.index.LemmaDictionary;
+import searchengine.services.index.LemmaDictionaryRegistry;
+import searchengine.services.index.PositionList;
+import searchengine.services.index.SearchBackend;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Буферизует записи страниц, лемм и индексов и сбрасывает их в базу пачками:
+ * по количеству страниц или строк индекса, по таймеру и по окончании обхода сайта.
+ * Id лемм и изменения их частот берутся из {@link LemmaDictionary} сайта,
+ * частоты записываются в базу отдельно, с интервалом frequency-flush-interval.
+ * После фиксации пачки изменения передаются в {@link SearchBackend}, а записанные страницы
+ * отмечаются обработанными в {@link FrontierStore}.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class IndexWriter {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchConfig batchConfig;
+    private final LemmaDictionaryRegistry lemmaDictionaryRegistry;
+    private final ContentCodec contentCodec;
+    private final SearchBackend searchBackend;
+    private final FrontierStore frontierStore;
+
+    private static final int REMOVE_CHUNK = 500;
+
+    private final Object bufferLock = new Object();
+    private final Object flushLock = new Object();
+    private List<PendingPage> buffer = new ArrayList<>();
+    private int bufferedIndexes;
+
+    public void write(PageEntity page, Map<String, PositionList> lemmas) {
+        LemmaDictionary dictionary = lemmaDictionaryRegistry.forSite(page.getSite().getId());
+        lemmas.keySet().forEach(lemma -> dictionary.entry(lemma).increment());
+
+        PendingPage pending = new PendingPage(page, contentCodec.compress(page.getContent()), dictionary, lemmas);
+        List<PendingPage> batch = null;
+        synchronized (bufferLock) {
+            buffer.add(pending);
+            bufferedIndexes += lemmas.size();
+            if (buffer.size() >= batchConfig.getPages() || bufferedIndexes >= batchConfig.getIndexes()) {
+                batch = drain();
+            }
+        }
+        if (batch != null) {
+            flush(batch);
+        }
+    }
+
+    public void flush() {
+        flushPages();
+        flushFrequencies();
+    }
+
+    @Scheduled(fixedDelayString = "#{@batchConfig.flushInterval}")
+    public void flushPages() {
+        List<PendingPage> batch;
+        synchronized (bufferLock) {
+            batch = drain();
+        }
+        flush(batch);
+    }
+
+    private List<PendingPage> drain() {
+        List<PendingPage> batch = buffer;
+        buffer = new ArrayList<>();
+        bufferedIndexes = 0;
+        return batch;
+    }
+
+    private void flush(List<PendingPage> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (tryFlush(batch)) {
+                return;
+            }
+            if (batch.size() == 1) {
+                discard(batch.get(0));
+                return;
+            }
+            log.warn("Пачка из " + batch.size() + " страниц не записана, страницы записываются по одной");
+            batch.stream()
+                    .filter(pending -> !tryFlush(List.of(pending)))
+                    .forEach(this::discard);
+        }
+    }
+
+    /**
+     * Записывает пачку в одной транзакции.
+     *
+     * @return false, если транзакция откатилась; id новых страниц и лемм при этом сбрасываются
+     */
+    private boolean tryFlush(List<PendingPage> batch) {
+        List<PageEntity> insertedPages = batch.stream()
+                .map(PendingPage::page)
+                .filter(page -> page.getId() == 0)
+                .toList();
+        List<LemmaDictionary.Entry> createdLemmas = new ArrayList<>();
+        Map<Integer, List<String>> removedLemmas = new HashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                removedLemmas.putAll(removeIndexes(batch));
+                savePages(batch);
+                createdLemmas.addAll(saveLemmas(batch));
+                saveIndexes(batch);
+            });
+        } catch (Exception e) {
+            insertedPages.forEach(page -> page.setId(0));
+            createdLemmas.forEach(entry -> entry.setId(0));
+            log.error("in flush - " + batch.size() + " страниц - " + e.getMessage(), e);
+            return false;
+        }
+        log.info("Записано страниц - " + batch.size());
+        updateSearchBackend(batch, removedLemmas);
+        batch.forEach(pending -> frontierStore.visited(pending.page().getSite().getId(), pending.page().getPath()));
+        return true;
+    }
+
+    /**
+     * Отменяет увеличение частот лемм незаписанной страницы.
+     */
+    private void discard(PendingPage pending) {
+        pending.lemmas().keySet().forEach(lemma -> pending.dictionary().entry(lemma).returnFrequencyDelta(-1));
+        PageEntity page = pending.page();
+        log.error("Страница не записана - " + page.getSite().getUrl() + " - " + page.getPath());
+    }
+
+    /**
+     * Обновляет ETag и Last-Modified страницы, содержимое которой не изменилось.
+     */
+    public void updateValidators(int pageId, String etag, String lastModified) {
+        jdbcTemplate.update("UPDATE pages SET etag = ?, last_modified = ?, indexed_at = ? WHERE id = ?",
+                etag, lastModified, LocalDateTime.now(), pageId);
+    }
+
+    /**
+     * Отмечает время проверки страницы, которая не изменилась (ответ 304 или тот же хэш содержимого).
+     */
+    public void confirmUnchanged(int pageId) {
+        jdbcTemplate.update("UPDATE pages SET indexed_at = ? WHERE id = ?", LocalDateTime.now(), pageId);
+    }
+
+    /**
+     * Сбрасывает словарь сайта вместе с незаписанными изменениями частот. Вызывается до удаления
+     * данных сайта, чтобы запись частот не восстанавливала удалённые леммы.
+     */
+    public void forgetSite(int siteId) {
+        synchronized (flushLock) {
+            lemmaDictionaryRegistry.remove(siteId);
+        }
+    }
+
+    /**
+     * Пересчитывает частоты лемм сайта по search_index и сбрасывает его словарь: после сбоя
+     * изменения частот, не записанные в базу, потеряны, а записанный индекс сохранился.
+     */
+    public void recountFrequencies(int siteId) {
+        synchronized (flushLock) {
+            lemmaDictionaryRegistry.remove(siteId);
+            jdbcTemplate.update("UPDATE lemma l LEFT JOIN (SELECT i.lemma_id, COUNT(*) AS pages FROM search_index i " +
+                    "JOIN lemma li ON li.id = i.lemma_id WHERE li.site_id = ? GROUP BY i.lemma_id) d ON d.lemma_id = l.id " +
+                    "SET l.frequency = COALESCE(d.pages, 0) WHERE l.site_id = ?", siteId, siteId);
+        }
+    }
+
+    /**
+     * Удаляет страницы вместе с их индексом и уменьшает частоты их лемм.
+     * Перед удалением записываются накопленные в буфере данные.
+     */
+    public void removePages(int siteId, List<Integer> pageIds) {
+        flushPages();
+        synchronized (flushLock) {
+            for (int from = 0; from < pageIds.size(); from += REMOVE_CHUNK) {
+                List<Integer> chunk = pageIds.subList(from, Math.min(from + REMOVE_CHUNK, pageIds.size()));
+                String in = String.join(",", Collections.nCopies(chunk.size(), "?"));
+                Object[] args = chunk.toArray();
+                Map<Integer, List<String>> removed = new HashMap<>();
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.query("SELECT i.page_id, l.lemma FROM search_index i JOIN lemma l ON l.id = i.lemma_id " +
+                                    "WHERE i.page_id IN (" + in + ")",
+                            rs -> {
+                                removed.computeIfAbsent(rs.getInt(1), id -> new ArrayList<>()).add(rs.getString(2));
+                            }, args);
+                    jdbcTemplate.update("UPDATE lemma l JOIN (SELECT lemma_id, COUNT(*) AS pages FROM search_index " +
+                            "WHERE page_id IN (" + in + ") GROUP BY lemma_id) d ON d.lemma_id = l.id " +
+                            "SET l.frequency = l.frequency - d.pages", args);
+                    jdbcTemplate.update("DELETE FROM search_index WHERE page_id IN (" + in + ")", args);
+                    jdbcTemplate.update("DELETE FROM pages WHERE id IN (" + in + ")", args);
+                });
+                searchBackend.onPagesChanged(siteId, removed, Map.of());
+            }
+        }
+        log.info("Удалено страниц - " + pageIds.size());
+    }
+
+    private Map<Integer, List<String>> removeIndexes(List<PendingPage> batch) {
+        List<Object[]> pageIds = batch.stream()
+                .filter(p -> p.page().getId() != 0)
+                .map(p -> new Object[]{p.page().getId()})
+                .toList();
+        Map<Integer, List<String>> removed = new HashMap<>();
+        if (pageIds.isEmpty()) {
+            return removed;
+        }
+        for (Object[] pageId : pageIds) {
+            removed.put((Integer) pageId[0], jdbcTemplate.queryForList("SELECT l.lemma FROM search_index i " +
+                    "JOIN lemma l ON l.id = i.lemma_id WHERE i.page_id = ?", String.class, pageId[0]));
+        }
+        jdbcTemplate.batchUpdate("UPDATE lemma l JOIN search_index i ON i.lemma_id = l.id " +
+                "SET l.frequency = l.frequency - 1 WHERE i.page_id = ?", pageIds);
+        jdbcTemplate.batchUpdate("DELETE FROM search_index WHERE page_id = ?", pageIds);
+        return removed;
+    }
+
+    private void updateSearchBackend(List<PendingPage> batch, Map<Integer, List<String>> removedLemmas) {
+        Map<Integer, Map<Integer, List<String>>> removed = new HashMap<>();
+        Map<Integer, Map<Integer, Map<String, Integer>>> indexed = new HashMap<>();
+        for (PendingPage pending : batch) {
+            PageEntity page = pending.page();
+            int siteId = page.getSite().getId();
+            List<String> lemmas = removedLemmas.get(page.getId());
+            if (lemmas != null) {
+                removed.computeIfAbsent(siteId, id -> new HashMap<>()).put(page.getId(), lemmas);
+            }
+            Map<String, Integer> rankings = new HashMap<>();
+            pending.lemmas().forEach((lemma, positions) -> rankings.put(lemma, positions.size()));
+            indexed.computeIfAbsent(siteId, id -> new HashMap<>()).put(page.getId(), rankings);
+        }
+        indexed.forEach((siteId, pages) ->
+                searchBackend.onPagesChanged(siteId, removed.getOrDefault(siteId, Map.of()), pages));
+    }
+
+    private void savePages(List<PendingPage> batch) {
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingPage> updated = batch.stream().filter(p -> p.page().getId() != 0).toList();
+        List<PendingPage> inserted = batch.stream().filter(p -> p.page().getId() == 0).toList();
+
+        if (!updated.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE pages SET code = ?, content = ?, title = ?, text = ?, " +
+                            "content_hash = ?, etag = ?, last_modified = ?, indexed_at = ? WHERE id = ?",
+                    updated.stream().map(p -> new Object[]{
+                            p.page().getCode(), p.content(), p.page().getTitle(), p.page().getText(),
+                            p.page().getContentHash(), p.page().getEtag(), p.page().getLastModified(), now, p.page().getId()
+                    }).toList());
+        }
+        if (inserted.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO pages (site_id, path, code, content, title, text, content_hash, etag, last_modified, indexed_at) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (PendingPage pending : inserted) {
+                    PageEntity page = pending.page();
+                    ps.setInt(1, page.getSite().getId());
+                    ps.setString(2, page.getPath());
+                    ps.setInt(3, page.getCode());
+                    ps.setBytes(4, pending.content());
+                    ps.setString(5, page.getTitle());
+                    ps.setString(6, page.getText());
+                    ps.setString(7, page.getContentHash());
+                    ps.setString(8, page.getEtag());
+                    ps.setString(9, page.getLastModified());
+                    ps.setObject(10, now);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (PendingPage pending : inserted) {
+                        keys.next();
+                        pending.page().setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private Collection<LemmaDictionary.Entry> saveLemmas(List<PendingPage> batch) {
+        Map<LemmaDictionary.Entry, Integer> created = new LinkedHashMap<>();
+        for (PendingPage pending : batch) {
+            LemmaDictionary dictionary = pending.dictionary();
+            for (String lemma : pending.lemmas().keySet()) {
+                LemmaDictionary.Entry entry = dictionary.entry(lemma);
+                if (entry.getId() == 0) {
+                    created.putIfAbsent(entry, dictionary.getSiteId());
+                }
+            }
+        }
+        if (created.isEmpty()) {
+            return created.keySet();
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO lemma (site_id, lemma, frequency) VALUES (?, ?, 0)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (Map.Entry<LemmaDictionary.Entry, Integer> entry : created.entrySet()) {
+                    ps.setInt(1, entry.getValue());
+                    ps.setString(2, entry.getKey().getLemma());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (LemmaDictionary.Entry entry : created.keySet()) {
+                        keys.next();
+                        entry.setId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
+        return created.keySet();
+    }
+
+    private void saveIndexes(List<PendingPage> batch) {
+        List<Object[]> rows = new ArrayList<>();
+        for (PendingPage pending : batch) {
+            LemmaDictionary dictionary = pending.dictionary();
+            pending.lemmas().forEach((lemma, positions) -> rows.add(new Object[]{
+                    pending.page().getId(), dictionary.find(lemma).getId(), positions.size(), positions.encode()
+            }));
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO search_index (page_id, lemma_id, ranking, positions) VALUES (?, ?, ?, ?)", rows);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "#{@batchConfig.frequencyFlushInterval}")
+    public void flushFrequencies() {
+        synchronized (flushLock) {
+            List<Object[]> rows = new ArrayList<>();
+            List<LemmaDictionary.Entry> entries = new ArrayList<>();
+            List<LemmaDictionary> dictionaries = new ArrayList<>();
+            for (LemmaDictionary dictionary : lemmaDictionaryRegistry.all()) {
+                for (LemmaDictionary.Entry entry : dictionary.entries()) {
+                    if (entry.getId() == 0) {
+                        continue;
+                    }
+                    long delta = entry.takeFrequencyDelta();
+                    if (delta != 0) {
+                        rows.add(new Object[]{entry.getId(), dictionary.getSiteId(), entry.getLemma(), delta});
+                        entries.add(entry);
+                        dictionaries.add(dictionary);
+                    }
+                }
+            }
+            if (rows.isEmpty()) {
+                return;
+            }
+            try {
+                jdbcTemplate.batchUpdate("INSERT INTO lemma (id, site_id, lemma, frequency) VALUES (?, ?, ?, ?) " +
+                        "ON DUPLICATE KEY UPDATE frequency = frequency + VALUES(frequency)", rows);
+            } catch (Exception e) {
+                log.error("in flushFrequencies - " + e.getMessage(), e);
+                for (int i = 0; i < entries.size(); i++) {
+                    if (lemmaDictionaryRegistry.isActive(dictionaries.get(i))) {
+                        entries.get(i).returnFrequencyDelta((Long) rows.get(i)[3]);
+                    }
+                }
+            }
+        }
+    }
+
+    private record PendingPage(PageEntity page, byte[] content, LemmaDictionary dictionary,
+                               Map<String, PositionList> lemmas) {
+    }
+}
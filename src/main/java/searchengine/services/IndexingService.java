@@ -7,26 +7,45 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
 import org.springframework.stereotype.Service;
-import searchengine.config.JsoupConfig;
+import searchengine.config.CrawlerConfig;
 import searchengine.config.SiteConfig;
 import searchengine.config.SitesList;
 import searchengine.dto.BasicResponse;
 import searchengine.dto.ErrorResponse;
 import searchengine.dto.SuccessResponse;
+import searchengine.dto.indexing.PageValidators;
 import searchengine.model.PageEntity;
 import searchengine.model.SiteEntity;
 import searchengine.model.StatusEnum;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.services.crawler.CrawlExecutor;
+import searchengine.services.crawler.CrawlProgress;
+import searchengine.services.crawler.CrawlSeeder;
+import searchengine.services.crawler.CrawlTask;
+import searchengine.services.crawler.FrontierStore;
+import searchengine.services.crawler.SiteCrawler;
+import searchengine.services.crawler.SitemapReader;
+import searchengine.services.crawler.UrlUtils;
+import searchengine.services.crawler.VisitedUrlRegistry;
+import searchengine.services.crawler.VisitedUrlSet;
+import searchengine.services.fetch.FetchResult;
+import searchengine.services.fetch.HostRateController;
+import searchengine.services.fetch.RobotsTxt;
+import searchengine.services.fetch.PageFetcher;
+import searchengine.services.index.LemmaDictionaryRegistry;
+import searchengine.services.index.SearchBackend;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.URL;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,9 +57,21 @@ public class IndexingService {
     private final SitesList sites;
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
-    private final JsoupConfig jsoupConfig;
     private final PageService pageService;
     private final LemmaService lemmaService;
+    private final CrawlerConfig crawlerConfig;
+    private final VisitedUrlRegistry visitedUrlRegistry;
+    private final IndexWriter indexWriter;
+    private final LemmaDictionaryRegistry lemmaDictionaryRegistry;
+    private final SearchBackend searchBackend;
+    private final SearchCache searchCache;
+    private final SitePurger sitePurger;
+    private final PageFetcher pageFetcher;
+    private final HostRateController hostRateController;
+    private final SitemapReader sitemapReader;
+    private final CrawlExecutor crawlExecutor;
+    private final FrontierStore frontierStore;
+    private final Map<Integer, SiteCrawler> crawlers = new ConcurrentHashMap<>();
 
     private final Set<String> excludedExtensions = Collections.synchronizedSet(new HashSet<>(
             Arrays.asList(
@@ -53,36 +84,102 @@ public class IndexingService {
             )
     ));
 
-    public BasicResponse startIndexing() {
+    /**
+     * @return состояние обхода сайта или null, если сайт сейчас не обходится
+     */
+    public CrawlProgress getProgress(int siteId) {
+        SiteCrawler crawler = crawlers.get(siteId);
+        return crawler == null ? null : crawler.getProgress();
+    }
+
+    /**
+     * @param incremental null - режим из crawler-settings.incremental
+     * @param resume      null - режим из crawler-settings.resume
+     */
+    public BasicResponse startIndexing(Boolean incremental, Boolean resume) {
         if (isRunning.get()) {
             return new ErrorResponse("Индексация уже запущена");
         }
 
         isRunning.set(true);
 
-        indexing();
+        indexing(incremental == null ? crawlerConfig.isIncremental() : incremental,
+                resume == null ? crawlerConfig.isResume() : resume);
 
         return new SuccessResponse();
     }
 
-    public void indexing() {
+    /**
+     * Полная индексация строит новое поколение сайта (отдельную строку sites) рядом с действующим,
+     * поиск в это время идёт по действующему. После успешного обхода новое поколение становится
+     * действующим, а старое удаляется в фоне.
+     * Инкрементальная сохраняет страницы: запросы отправляются с If-None-Match/If-Modified-Since,
+     * неизменённые страницы (ответ 304 или тот же хэш содержимого) повторно не лемматизируются,
+     * а страницы, не найденные при обходе, удаляются вместе с индексом.
+     * При продолжении (resume) полная индексация, прерванная остановкой или сбоем, продолжается
+     * в своё поколение с необработанных ссылок из crawl_frontier, сохранённые страницы не удаляются.
+     */
+    public void indexing(boolean incremental, boolean resume) {
         List<SiteConfig> siteList = sites.getSites();
         siteList.forEach(s -> {
-            SiteEntity site = siteRepository.findByUrl(s.getUrl());
-            if (site != null) {
-                deleteDataForSite(site);
+            SiteEntity site = siteRepository.findByUrlAndLiveTrue(s.getUrl());
+            SiteEntity previous = null;
+            SiteEntity resumed = resume ? findResumable(s.getUrl()) : null;
+            Map<String, PageValidators> known;
+            if (resumed != null) {
+                siteRepository.findByUrlAndLiveFalse(s.getUrl()).stream()
+                        .filter(stale -> stale.getId() != resumed.getId())
+                        .forEach(this::retire);
+                previous = site;
+                site = resumed;
+                known = Collections.emptyMap();
+                indexWriter.recountFrequencies(site.getId());
+                lemmaDictionaryRegistry.forSite(site.getId());
+            } else if (site != null && incremental) {
+                known = pageRepository.findValidatorsBySiteId(site.getId()).stream()
+                        .collect(Collectors.toMap(PageValidators::getPath, v -> v, (a, b) -> a));
+                lemmaDictionaryRegistry.forSite(site.getId());
+            } else {
+                siteRepository.findByUrlAndLiveFalse(s.getUrl()).forEach(this::retire);
+                previous = site;
+                site = createSite(s, false);
+                known = Collections.emptyMap();
+                lemmaDictionaryRegistry.reset(site.getId());
             }
-            site = createSite(s);
 
             updateSiteStatus(site, StatusEnum.INDEXING);
-            log.info("Сайт - " + site.getUrl() + " - Запущена индексация");
+            log.info("Сайт - " + site.getUrl() + " - Запущена индексация"
+                    + (resumed != null ? " (продолжение)" : incremental ? " (инкрементальная)" : ""));
 
             SiteEntity finalSite = site;
-            CompletableFuture
-                    .runAsync(() -> scan(finalSite, finalSite.getUrl()), ForkJoinPool.commonPool())
+            SiteEntity previousSite = previous;
+            VisitedUrlSet visited;
+            List<CrawlTask> tasks;
+            if (resumed != null) {
+                visitedUrlRegistry.remove(finalSite);
+                visited = visitedUrlRegistry.forSite(finalSite);
+                tasks = frontierStore.load(finalSite.getId()).stream()
+                        .filter(task -> visited.add(UrlUtils.getPath(task.url())))
+                        .toList();
+                log.info("Сайт - " + finalSite.getUrl() + " - сохранено страниц: " + visited.size()
+                        + ", в очереди: " + tasks.size());
+            } else {
+                visited = visitedUrlRegistry.reset(finalSite);
+                tasks = List.of();
+            }
+            if (!finalSite.isLive()) {
+                frontierStore.track(finalSite.getId());
+            }
+            Set<String> unchanged = ConcurrentHashMap.newKeySet();
+            SiteCrawler crawler = new SiteCrawler(finalSite, crawlerConfig, crawlExecutor, visited, frontierStore,
+                    (crawledSite, url) -> visit(crawledSite, url, known, unchanged));
+            crawlers.put(finalSite.getId(), crawler);
+            crawlExecutor
+                    .runAsync(() -> crawl(s, crawler, finalSite, known, unchanged, visited, tasks))
                     .thenAccept(x -> {
-                        if (isRunning.get()) {
+                        if (!crawler.isStopped()) {
                             updateSiteStatus(finalSite, StatusEnum.INDEXED);
+                            promote(finalSite, previousSite);
                             log.info("Сайт - " + finalSite.getUrl() + " проиндексирован");
                             List<SiteEntity> sites = siteRepository.findAll();
                             sites.forEach(checkSite -> {
@@ -103,76 +200,241 @@ public class IndexingService {
                         updateSiteStatus(finalSite, StatusEnum.FAILED, e.getMessage());
                         siteRepository.save(finalSite);
                         return null;
-                    });
+                    })
+                    .whenComplete((x, e) -> crawlers.remove(finalSite.getId()));
         });
     }
 
-    private void scan(SiteEntity site, String url) {
+    /**
+     * Недействующее поколение сайта с контрольной точкой обхода, самое новое.
+     */
+    private SiteEntity findResumable(String url) {
+        return siteRepository.findByUrlAndLiveFalse(url).stream()
+                .filter(site -> frontierStore.hasCheckpoint(site.getId()))
+                .max(Comparator.comparingInt(SiteEntity::getId))
+                .orElse(null);
+    }
+
+    private void crawl(SiteConfig siteConfig, SiteCrawler crawler, SiteEntity site, Map<String, PageValidators> known,
+                       Set<String> unchanged, VisitedUrlSet visited, List<CrawlTask> resumed) {
         try {
-            Document doc = getDoc(url);
-            Thread.sleep(200);
+            RobotsTxt robots = pageFetcher.fetchRobots(site.getUrl());
+            hostRateController.configure(siteConfig, robots.crawlDelay());
+            CrawlSeeder seeder = crawlerConfig.isSitemaps() && resumed.isEmpty()
+                    ? enqueue -> seedFromSitemaps(site, robots.sitemaps(), known, unchanged, enqueue)
+                    : null;
+            crawler.crawl(resumed, seeder);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            awaitPipeline(site);
+            indexWriter.flush();
+            if (!crawler.isStopped()) {
+                frontierStore.clear(site.getId());
+            } else {
+                frontierStore.release(site.getId());
+            }
+        }
+        if (!known.isEmpty() && !crawler.isStopped()) {
+            List<Integer> missing = known.values().stream()
+                    .filter(v -> !visited.contains(v.getPath()))
+                    .map(PageValidators::getId)
+                    .toList();
+            if (!missing.isEmpty()) {
+                log.info("Сайт - " + site.getUrl() + " - удаление исчезнувших страниц: " + missing.size());
+                indexWriter.removePages(site.getId(), missing);
+            }
+        }
+    }
 
-            PageEntity page = createPage(site, url, doc);
+    /**
+     * Добавляет в очередь обхода адреса из sitemap. При инкрементальной индексации страницы,
+     * у которых lastmod не позже времени их индексации, отмечаются как неизменённые.
+     */
+    private void seedFromSitemaps(SiteEntity site, List<String> sitemaps, Map<String, PageValidators> known,
+                                  Set<String> unchanged, Predicate<String> enqueue) throws InterruptedException {
+        AtomicInteger skipped = new AtomicInteger();
+        sitemapReader.read(site.getUrl(), sitemaps, entry -> {
+            String link = normalizeLink(site, entry.url());
+            if (link == null) {
+                return true;
+            }
+            PageValidators validators = known.get(UrlUtils.getPath(link));
+            if (validators != null && validators.getIndexedAt() != null && entry.lastModified() != null
+                    && !entry.lastModified().isAfter(validators.getIndexedAt().atZone(ZoneId.systemDefault()).toInstant())) {
+                unchanged.add(validators.getPath());
+                skipped.incrementAndGet();
+            }
+            return enqueue.test(link);
+        });
+        if (skipped.get() > 0) {
+            log.info("Сайт - " + site.getUrl() + " - не изменились по lastmod: " + skipped.get());
+        }
+    }
 
-            pageService.addPage(page);
+    /**
+     * Страницы, неизменённые по lastmod из sitemap, не загружаются: ссылки берутся из сохранённого HTML.
+     * Остальные загружаются асинхронно; разбор и сохранение выполняются по получении ответа,
+     * пока за загрузкой остаются место хоста и общее разрешение.
+     */
+    private CompletableFuture<Collection<String>> visit(SiteEntity site, String url, Map<String, PageValidators> known,
+                                                        Set<String> unchanged) throws InterruptedException {
+        if (!isRunning.get()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        String path = UrlUtils.getPath(url);
+        PageValidators validators = known.get(path);
+        if (validators != null && unchanged.contains(path)) {
+            try {
+                return CompletableFuture.completedFuture(storedLinks(site, url, validators));
+            } catch (Exception e) {
+                log.error(url + " - " + e.getMessage(), e);
+                frontierStore.visited(site.getId(), path);
+                return CompletableFuture.completedFuture(Collections.emptyList());
+            }
+        }
+
+        return crawlExecutor.withPermitsAsync(url, () -> {
+            long start = System.nanoTime();
+            return pageFetcher.fetchAsync(url, conditionalHeaders(validators))
+                    .whenComplete((response, e) -> pageService.recordFetch(System.nanoTime() - start))
+                    .handle((response, e) -> handleResponse(site, url, validators, response, e));
+        });
+    }
 
-            Elements elements = doc.select("a");
-            Set<String> links = elements.stream().map(e -> e.absUrl("href")).map(String::trim).collect(Collectors.toSet());
-            for (String link : links) {
-                if (!isRunning.get()) {
-                    return;
-                }
-                link = link.endsWith("/") ? link.substring(0, link.length() - 1) : link;
-
-                if (!link.contains("://www.") && site.getUrl().contains("://www.")) {
-                    link = link.replaceFirst("://", "://www.");
-                }
-
-                link = link.replace(" ", "%20");
-                link = link.replace("[", "%5B");
-                link = link.replace("]", "%5D");
-                link = link.replace("{", "%7B");
-                link = link.replace("}", "%7D");
-                if (isCorrectUrl(site, link)) {
-                    scan(site, link);
-                }
+    private Collection<String> handleResponse(SiteEntity site, String url, PageValidators validators,
+                                              FetchResult response, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        try {
+            if (cause instanceof CancellationException) {
+                return Collections.emptyList();
             }
-        } catch (HttpStatusException e) {
-            PageEntity page = new PageEntity();
-            page.setSite(site);
-            page.setPath(getPathFromUrl(url));
-            page.setCode(e.getStatusCode());
-            page.setContent("");
-            pageService.addPage(page);
-        } catch (InterruptedException ignored) {
-        } catch (Exception e) {
+            if (cause instanceof HttpStatusException e) {
+                PageEntity page = new PageEntity();
+                page.setSite(site);
+                page.setPath(UrlUtils.getPath(url));
+                page.setCode(e.getStatusCode());
+                page.setContent("");
+                page.setTitle("");
+                page.setText("");
+                page.setContentHash(ContentCodec.hash(""));
+                savePage(page, validators);
+                return Collections.emptyList();
+            }
+            if (cause != null) {
+                throw cause;
+            }
+
+            if (validators != null && response.isNotModified()) {
+                indexWriter.confirmUnchanged(validators.getId());
+                return storedLinks(site, url, validators);
+            }
+
+            Document doc = response.document();
+            PageEntity page = createPage(site, url, response, doc);
+            savePage(page, validators);
+
+            return getLinks(site, doc);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
             log.error(url + " - " + e.getMessage(), e);
+            frontierStore.visited(site.getId(), UrlUtils.getPath(url));
+        }
+        return Collections.emptyList();
+    }
+
+    private Set<String> storedLinks(SiteEntity site, String url, PageValidators validators) {
+        return getLinks(site, Jsoup.parse(pageRepository.findContentById(validators.getId()), url));
+    }
+
+    /**
+     * Ждёт, пока конвейер индексации запишет уже загруженные страницы сайта.
+     */
+    private void awaitPipeline(SiteEntity site) {
+        try {
+            pageService.awaitSite(site.getId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private Document getDoc(String url) throws IOException {
-        return Jsoup.connect(url).userAgent(jsoupConfig.getUserAgent()).referrer(jsoupConfig.getReferrer()).get();
+    /**
+     * Индексирует страницу, если она новая или изменилась; у неизменённой обновляются только ETag,
+     * Last-Modified и время индексации.
+     */
+    private void savePage(PageEntity page, PageValidators validators) throws InterruptedException {
+        if (validators == null) {
+            pageService.addPage(page);
+            return;
+        }
+        page.setId(validators.getId());
+        if (page.getCode() == validators.getCode() && page.getContentHash().equals(validators.getContentHash())) {
+            if (!Objects.equals(page.getEtag(), validators.getEtag())
+                    || !Objects.equals(page.getLastModified(), validators.getLastModified())) {
+                indexWriter.updateValidators(page.getId(), page.getEtag(), page.getLastModified());
+            } else {
+                indexWriter.confirmUnchanged(page.getId());
+            }
+            return;
+        }
+        pageService.addPage(page);
+    }
+
+    private Set<String> getLinks(SiteEntity site, Document doc) {
+        Elements elements = doc.select("a");
+        Set<String> links = new HashSet<>();
+        for (String link : elements.stream().map(e -> e.absUrl("href")).map(String::trim).collect(Collectors.toSet())) {
+            link = normalizeLink(site, link);
+            if (link != null) {
+                links.add(link);
+            }
+        }
+        return links;
+    }
+
+    /**
+     * @return ссылка в виде, принятом для обхода, или null, если она не относится к сайту
+     */
+    private String normalizeLink(SiteEntity site, String link) {
+        link = link.endsWith("/") ? link.substring(0, link.length() - 1) : link;
+
+        if (!link.contains("://www.") && site.getUrl().contains("://www.")) {
+            link = link.replaceFirst("://", "://www.");
+        }
+
+        link = link.replace(" ", "%20");
+        link = link.replace("[", "%5B");
+        link = link.replace("]", "%5D");
+        link = link.replace("{", "%7B");
+        link = link.replace("}", "%7D");
+        return isCorrectUrl(site, link) ? link : null;
+    }
+
+    private Map<String, String> conditionalHeaders(PageValidators validators) {
+        Map<String, String> headers = new HashMap<>();
+        if (validators != null && validators.getEtag() != null) {
+            headers.put("If-None-Match", validators.getEtag());
+        }
+        if (validators != null && validators.getLastModified() != null) {
+            headers.put("If-Modified-Since", validators.getLastModified());
+        }
+        return headers;
     }
 
-    private PageEntity createPage(SiteEntity site, String url, Document doc) {
+    private PageEntity createPage(SiteEntity site, String url, FetchResult response, Document doc) {
         PageEntity page = new PageEntity();
         page.setSite(site);
-        page.setPath(getPathFromUrl(url));
-        page.setCode(doc.connection().response().statusCode());
+        page.setPath(UrlUtils.getPath(url));
+        page.setCode(response.statusCode());
         page.setContent(doc.outerHtml());
+        page.setContentHash(ContentCodec.hash(page.getContent()));
+        page.setEtag(response.etag());
+        page.setLastModified(response.lastModified());
+        lemmaService.setText(page, doc);
         return page;
     }
 
-    private String getPathFromUrl(String urlString) {
-        try {
-            URL url = new URI(urlString).toURL();
-            return url.getPath().isEmpty() ? "/" : url.getPath();
-        } catch (Exception e) {
-            log.error(e.getMessage());
-        }
-        return "";
-    }
-
     private boolean isCorrectUrl(SiteEntity site, String url) {
         if (!url.contains(site.getUrl())) {
             return false;
@@ -187,8 +449,7 @@ public class IndexingService {
             }
         }
 
-        PageEntity page = pageRepository.findBySiteAndPath(site, getPathFromUrl(url));
-        return page == null;
+        return true;
     }
 
     public BasicResponse stopIndexSite() {
@@ -197,26 +458,57 @@ public class IndexingService {
         }
 
         isRunning.set(false);
+        crawlers.values().forEach(SiteCrawler::stop);
+        pageFetcher.cancelAll();
+        crawlExecutor.cancelPages();
 
         return new SuccessResponse();
     }
 
-    private SiteEntity createSite(SiteConfig siteConfig) {
-        SiteEntity site = siteRepository.findByUrl(siteConfig.getUrl());
+    private SiteEntity createSite(SiteConfig siteConfig, boolean live) {
+        SiteEntity site = new SiteEntity();
+        site.setUrl(siteConfig.getUrl());
+        site.setName(siteConfig.getName());
+        site.setLive(live);
+        site.setStatusTime(LocalDateTime.now());
+        return siteRepository.save(site);
+    }
 
-        if (site == null) {
-            site = new SiteEntity();
-            site.setUrl(siteConfig.getUrl());
-            site.setName(siteConfig.getName());
+    /**
+     * Переключает поиск на новое поколение сайта и удаляет предыдущее в фоне.
+     */
+    private void promote(SiteEntity site, SiteEntity previous) {
+        siteRepository.promote(site.getUrl(), site.getId());
+        site.setLive(true);
+        searchCache.invalidateSite(site.getUrl());
+        if (previous != null && previous.getId() != site.getId()) {
+            previous.setLive(false);
+            retire(previous);
         }
+    }
 
-        site.setStatusTime(LocalDateTime.now());
-        return siteRepository.save(site);
+    /**
+     * Удаляет в фоне недействующее поколение сайта: предыдущее или оставшееся от прерванной индексации.
+     */
+    private void retire(SiteEntity site) {
+        if (site.getStatus() == StatusEnum.INDEXING) {
+            updateSiteStatus(site, StatusEnum.FAILED, "Поколение данных устарело");
+        }
+        crawlExecutor
+                .runAsync(() -> deleteDataForSite(site))
+                .exceptionally(e -> {
+                    log.error("Не удалось удалить данные сайта " + site + " - " + e.getMessage(), e);
+                    return null;
+                });
     }
 
     private void deleteDataForSite(SiteEntity site) {
         log.info("Delete - " + site.getName());
-        siteRepository.deleteById(site.getId());
+        indexWriter.forgetSite(site.getId());
+        sitePurger.purge(site.getId());
+        visitedUrlRegistry.remove(site);
+        searchBackend.onSiteRemoved(site.getId());
+        searchCache.invalidateSite(site.getUrl());
     }
 
     private void updateSiteStatus(SiteEntity site, StatusEnum status) {
@@ -228,12 +520,13 @@ public class IndexingService {
         site.setStatus(status);
         site.setStatusTime(LocalDateTime.now());
         siteRepository.save(site);
+        searchCache.invalidateSite(site.getUrl());
         System.out.println("Статус: " + status + " для " + site.getName());
     }
 
     public BasicResponse indexPage(String url) {
         List<SiteConfig> siteConfigList = sites.getSites();
-        List<SiteEntity> siteList = siteRepository.findAll();
+        List<SiteEntity> siteList = siteRepository.findAllByLiveTrue();
 
         boolean urlInConfigList = siteConfigList.stream().anyMatch(s -> url.contains(s.getUrl()));
         boolean urlInRepository = siteList.stream().anyMatch(s -> url.contains(s.getUrl()));
@@ -242,41 +535,56 @@ public class IndexingService {
             return new ErrorResponse("Данная страница находится за пределами сайтов, указанных в конфигурационном файле");
         }
 
-        new Thread(() -> {
+        boolean queued = crawlExecutor.submitPage(() -> {
             SiteEntity site = urlInRepository ?
                     siteList.stream().filter(s -> url.contains(s.getUrl())).findFirst().get() :
-                    createSite(siteConfigList.stream().filter(s -> url.contains(s.getUrl())).findFirst().get());
-
-            try {
-                Document doc = getDoc(url);
-
-                boolean reIndex = false;
+                    createSite(siteConfigList.stream().filter(s -> url.contains(s.getUrl())).findFirst().get(), true);
+            reindexPage(site, url);
+        });
+        if (!queued) {
+            return new ErrorResponse("Слишком много страниц в очереди на индексацию, повторите запрос позже");
+        }
 
-                PageEntity page = pageRepository.findBySiteAndPath(site, getPathFromUrl(url));
+        return new SuccessResponse();
+    }
 
-                if (page == null) {
-                    page = new PageEntity();
-                    page.setSite(site);
-                    page.setPath(getPathFromUrl(url));
-                } else {
-                    reIndex = true;
-                }
+    private void reindexPage(SiteEntity site, String url) {
+        try {
+            FetchResult response = crawlExecutor.withPermits(url, () -> pageFetcher.fetch(url, Map.of()));
+            Document doc = response.document();
 
-                page.setCode(doc.connection().response().statusCode());
-                page.setContent(doc.outerHtml());
-                page = pageRepository.save(page);
+            String path = UrlUtils.getPath(url);
+            visitedUrlRegistry.forSite(site).add(path);
 
-                lemmaService.lemmatize(page, reIndex);
+            // во время инкрементального обхода множество посещённых сбрасывается, поэтому
+            // наличие страницы определяется только по базе
+            PageEntity page = pageRepository.findBySiteAndPath(site, path);
 
-                log.info("Проиндексирована страница - " + url);
-            } catch (HttpStatusException e) {
-                log.error("Ошибка - " + e.getStatusCode(), e);
-            } catch (Exception e) {
-                log.error(e.getMessage(), e);
+            if (page == null) {
+                page = new PageEntity();
+                page.setSite(site);
+                page.setPath(path);
             }
 
-        }).start();
+            page.setCode(response.statusCode());
+            page.setContent(doc.outerHtml());
+            page.setContentHash(ContentCodec.hash(page.getContent()));
+            page.setEtag(response.etag());
+            page.setLastModified(response.lastModified());
+            lemmaService.setText(page, doc);
 
-        return new SuccessResponse();
+            lemmaService.lemmatize(page);
+            indexWriter.flush();
+            searchCache.invalidateSite(site.getUrl());
+
+            log.info("Проиндексирована страница - " + url);
+        } catch (HttpStatusException e) {
+            log.error("Ошибка - " + e.getStatusCode(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.info("Индексация страницы прервана - " + url);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,34 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Переводит lemma.lemma на сравнение с учётом регистра (utf8mb4_bin): ddl-auto: update
+ * не меняет существующие столбцы, а при прежнем сравнении уникальный ключ (site_id, lemma)
+ * склеивает разные леммы.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LemmaCollationMigration implements ApplicationRunner {
+    private static final String COLLATION = "utf8mb4_bin";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String collation = jdbcTemplate.query("SELECT COLLATION_NAME FROM information_schema.COLUMNS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'lemma' AND COLUMN_NAME = 'lemma'",
+                rs -> rs.next() ? rs.getString(1) : null);
+        if (collation != null && !collation.equalsIgnoreCase(COLLATION)) {
+            log.info("Изменение сравнения lemma.lemma с " + collation + " на " + COLLATION);
+            jdbcTemplate.execute("ALTER TABLE lemma MODIFY lemma VARCHAR(255) CHARACTER SET utf8mb4 COLLATE "
+                    + COLLATION + " NOT NULL");
+        }
+    }
+}
@@ -1,23 +1,29 @@
 package searchengine.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import org.apache.lucene.morphology.LuceneMorphology;
 import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
 import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
-import org.jsoup.Jsoup;
 import org.springframework.stereotype.Service;
+import searchengine.services.index.PositionList;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class Lemmatizer {
     private final List<String> WRONG_TYPES = List.of("ПРЕДЛ", "СОЮЗ", "МЕЖД", "ВВОДН", "ЧАСТ", "МС", "CONJ", "PART", "NOUN");
+    private final Map<String, Boolean> wrongPartsOfSpeech = new ConcurrentHashMap<>();
     private final LuceneMorphology russianMorphology;
     private final LuceneMorphology englishMorphology;
+    private final Cache<String, WordForms> cache;
 
-    public Lemmatizer() {
+    public Lemmatizer(Cache<String, WordForms> lemmatizerCache) {
+        cache = lemmatizerCache;
         try {
             russianMorphology = new RussianLuceneMorphology();
             englishMorphology = new EnglishLuceneMorphology();
@@ -26,59 +32,131 @@ public class Lemmatizer {
         }
     }
 
-    public HashMap<String, Integer> lemmatize(String text) {
+    public HashMap<String, Integer> lemmatize(CharSequence text) {
         HashMap<String, Integer> result = new HashMap<>();
 
-        List<String> words = Arrays.stream(text.toLowerCase().split("\\s+|[^\\p{L}]+")).toList();
-
-        for (String word : words) {
-            if (word.isBlank()) {
-                continue;
+        forEachWord(text, (word, start) -> {
+            WordForms wordForms = cache.get(word, this::analyze);
+            if (wordForms.excluded()) {
+                return;
             }
 
-            if (checkType(word)) {
-                continue;
+            for (String normalWord : wordForms.normalForms()) {
+                result.merge(normalWord, 1, Integer::sum);
             }
+        });
+        return result;
+    }
 
-            List<String> normalWords;
+    /**
+     * То же, что {@link #lemmatize}, но для каждой леммы сохраняет смещения слов в тексте.
+     */
+    public HashMap<String, PositionList> lemmatizeWithPositions(CharSequence text) {
+        HashMap<String, PositionList> result = new HashMap<>();
 
-            if (russianMorphology.checkString(word)) {
-                normalWords = russianMorphology.getNormalForms(word);
-            } else {
-                normalWords = englishMorphology.getNormalForms(word);
+        forEachWord(text, (word, start) -> {
+            WordForms wordForms = cache.get(word, this::analyze);
+            if (wordForms.excluded()) {
+                return;
             }
 
-            if (normalWords.isEmpty()) {
-                continue;
+            for (String normalWord : wordForms.normalForms()) {
+                result.computeIfAbsent(normalWord, l -> new PositionList()).add(start);
             }
+        });
+        return result;
+    }
 
-            for (String normalWord : normalWords) {
-                result.merge(normalWord, 1, Integer::sum);
+    /**
+     * Один проход по тексту: словом считается непрерывная последовательность букв,
+     * слово передаётся в нижнем регистре вместе со смещением начала в исходном тексте.
+     */
+    private void forEachWord(CharSequence text, WordConsumer consumer) {
+        StringBuilder word = new StringBuilder();
+        int length = text.length();
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            if (Character.isLetter(c)) {
+                if (word.length() == 0) {
+                    start = i;
+                }
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                consumer.accept(word.toString(), start);
+                word.setLength(0);
             }
         }
-        return result;
     }
 
-    private boolean checkType(String word) {
-        List<String> wordBaseForm;
-
+    private WordForms analyze(String word) {
+        LuceneMorphology morphology;
         if (russianMorphology.checkString(word)) {
-            wordBaseForm = russianMorphology.getMorphInfo(word);
+            morphology = russianMorphology;
         } else if (englishMorphology.checkString(word)) {
-            wordBaseForm = englishMorphology.getMorphInfo(word);
+            morphology = englishMorphology;
         } else {
-            return true;
+            return WordForms.EXCLUDED;
+        }
+        List<String> morphInfo = morphology.getMorphInfo(word);
+
+        List<String> normalWords = new ArrayList<>(morphInfo.size());
+        boolean emptyForm = false;
+        for (String info : morphInfo) {
+            int separator = info.indexOf('|');
+            if (separator < 0) {
+                continue;
+            }
+            if (isWrongPartOfSpeech(getPartOfSpeech(info, separator))) {
+                return WordForms.EXCLUDED;
+            }
+            String normalWord = info.substring(0, separator);
+            if (normalWord.isEmpty()) {
+                emptyForm = true;
+            } else if (!normalWords.contains(normalWord)) {
+                normalWords.add(normalWord);
+            }
         }
 
-        for (String type : WRONG_TYPES) {
-            if (wordBaseForm.toString().contains(type)) {
-                return true;
+        // getMorphInfo иногда отдаёт пустую нормальную форму (англ. "t" - "|1 VERB ..."),
+        // тогда формы берутся из getNormalForms, как до перехода на разбор getMorphInfo
+        if (emptyForm) {
+            for (String normalWord : morphology.getNormalForms(word)) {
+                if (!normalWord.isEmpty() && !normalWords.contains(normalWord)) {
+                    normalWords.add(normalWord);
+                }
             }
         }
-        return false;
+
+        return normalWords.isEmpty() ? WordForms.EXCLUDED : new WordForms(List.copyOf(normalWords), false);
+    }
+
+    /**
+     * Строка морфологической информации имеет вид "нормальная_форма|код ЧАСТЬ_РЕЧИ граммемы".
+     */
+    private String getPartOfSpeech(String info, int separator) {
+        int start = info.indexOf(' ', separator);
+        if (start < 0) {
+            return "";
+        }
+        int end = info.indexOf(' ', start + 1);
+        return info.substring(start + 1, end < 0 ? info.length() : end);
+    }
+
+    private boolean isWrongPartOfSpeech(String partOfSpeech) {
+        return wrongPartsOfSpeech.computeIfAbsent(partOfSpeech,
+                pos -> WRONG_TYPES.stream().anyMatch(pos::contains));
+    }
+
+    @FunctionalInterface
+    private interface WordConsumer {
+        void accept(String word, int start);
     }
 
-    public String clearText(String text) {
-        return Jsoup.parse(text).body().text();
+    /**
+     * Результат морфологического разбора словоформы, кэшируется в {@link #cache}.
+     */
+    public record WordForms(List<String> normalForms, boolean excluded) {
+        static final WordForms EXCLUDED = new WordForms(List.of(), true);
     }
 }
@@ -1,30 +1,199 @@
 package searchengine.services;
 
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import searchengine.config.PipelineConfig;
 import searchengine.model.PageEntity;
-import searchengine.repositories.PageRepository;
+import searchengine.services.crawler.CrawlExecutor;
+import searchengine.services.index.PositionList;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Конвейер индексации загруженных страниц: лемматизация и запись в базу
+ * выполняются отдельными пулами потоков, связанными ограниченными очередями.
+ * Загрузчики не ждут лемматизации, пока в очереди есть место; если запись
+ * в базу не успевает, очереди заполняются и {@link #addPage} блокирует загрузку.
+ * Метрики: indexing.pipeline.stage (время и количество по стадиям),
+ * indexing.pipeline.queue (размер очередей), indexing.pipeline.backpressure
+ * (ожидание места в очереди).
+ */
 @Service
 @Slf4j
-@AllArgsConstructor
 public class PageService {
-
-    private final PageRepository pageRepository;
     private final LemmaService lemmaService;
+    private final IndexWriter indexWriter;
+    private final CrawlExecutor crawlExecutor;
+
+    private final BlockingQueue<PageEntity> lemmatizeQueue;
+    private final BlockingQueue<LemmatizedPage> persistQueue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final Map<Integer, Integer> inFlight = new HashMap<>();
+
+    private final Timer fetchTimer;
+    private final Timer lemmatizeTimer;
+    private final Timer persistTimer;
+    private final Timer lemmatizeBackpressure;
+    private final Timer persistBackpressure;
+
+    public PageService(LemmaService lemmaService, IndexWriter indexWriter, CrawlExecutor crawlExecutor,
+                       PipelineConfig pipelineConfig, MeterRegistry meterRegistry) {
+        this.lemmaService = lemmaService;
+        this.indexWriter = indexWriter;
+        this.crawlExecutor = crawlExecutor;
+        lemmatizeQueue = new ArrayBlockingQueue<>(Math.max(1, pipelineConfig.getLemmatizeQueue()));
+        persistQueue = new ArrayBlockingQueue<>(Math.max(1, pipelineConfig.getPersistQueue()));
+
+        fetchTimer = stageTimer(meterRegistry, "fetch");
+        lemmatizeTimer = stageTimer(meterRegistry, "lemmatize");
+        persistTimer = stageTimer(meterRegistry, "persist");
+        lemmatizeBackpressure = backpressureTimer(meterRegistry, "lemmatize");
+        persistBackpressure = backpressureTimer(meterRegistry, "persist");
+        Gauge.builder("indexing.pipeline.queue", lemmatizeQueue, BlockingQueue::size)
+                .tag("stage", "lemmatize").register(meterRegistry);
+        Gauge.builder("indexing.pipeline.queue", persistQueue, BlockingQueue::size)
+                .tag("stage", "persist").register(meterRegistry);
 
-    @Transactional
-    public void addPage(PageEntity page) {
+        int lemmatizeThreads = pipelineConfig.getLemmatizeThreads() > 0
+                ? pipelineConfig.getLemmatizeThreads()
+                : Runtime.getRuntime().availableProcessors();
+        startWorkers("lemmatizer", lemmatizeThreads, lemmatizeQueue, this::lemmatize);
+        startWorkers("index-writer", Math.max(1, pipelineConfig.getPersistThreads()), persistQueue, this::persist);
+    }
+
+    /**
+     * Передаёт страницу на лемматизацию и запись. Блокируется, пока в очереди нет места.
+     */
+    public void addPage(PageEntity page) throws InterruptedException {
+        int siteId = page.getSite().getId();
+        synchronized (inFlight) {
+            inFlight.merge(siteId, 1, Integer::sum);
+        }
         try {
-            if (pageRepository.findBySiteAndPath(page.getSite(), page.getPath()) == null) {
-                page = pageRepository.save(page);
-                lemmaService.lemmatize(page, false);
-                log.info("Добавлена страница - " + page.getSite().getUrl() + " - " + page.getPath());
+            put(lemmatizeQueue, page, lemmatizeBackpressure);
+        } catch (InterruptedException e) {
+            done(siteId);
+            throw e;
+        }
+    }
+
+    /**
+     * Учитывает время загрузки страницы в метриках конвейера.
+     */
+    public void recordFetch(long nanos) {
+        fetchTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Ждёт, пока все переданные страницы сайта будут записаны в буфер {@link IndexWriter}.
+     */
+    public void awaitSite(int siteId) throws InterruptedException {
+        synchronized (inFlight) {
+            while (inFlight.containsKey(siteId)) {
+                inFlight.wait();
             }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void lemmatize(PageEntity page) throws InterruptedException {
+        long start = System.nanoTime();
+        HashMap<String, PositionList> lemmas;
+        try {
+            lemmas = lemmaService.collectLemmas(page);
+        } catch (Exception e) {
+            failed(page, e);
+            return;
+        }
+        lemmatizeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        try {
+            put(persistQueue, new LemmatizedPage(page, lemmas), persistBackpressure);
+        } catch (InterruptedException e) {
+            done(page.getSite().getId());
+            throw e;
+        }
+    }
+
+    private void persist(LemmatizedPage lemmatized) {
+        PageEntity page = lemmatized.page();
+        long start = System.nanoTime();
+        try {
+            indexWriter.write(page, lemmatized.lemmas());
+            persistTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.info("Добавлена страница - " + page.getSite().getUrl() + " - " + page.getPath());
         } catch (Exception e) {
             log.error("in addPage - " + page.getSite().getUrl() + " - " + page.getPath() + " - " + e.getMessage(), e);
+        } finally {
+            done(page.getSite().getId());
+        }
+    }
+
+    private void failed(PageEntity page, Exception e) {
+        log.error("in addPage - " + page.getSite().getUrl() + " - " + page.getPath() + " - " + e.getMessage(), e);
+        done(page.getSite().getId());
+    }
+
+    private void done(int siteId) {
+        synchronized (inFlight) {
+            if (inFlight.merge(siteId, -1, Integer::sum) <= 0) {
+                inFlight.remove(siteId);
+                inFlight.notifyAll();
+            }
+        }
+    }
+
+    private <T> void put(BlockingQueue<T> queue, T item, Timer backpressure) throws InterruptedException {
+        if (queue.offer(item)) {
+            return;
         }
+        long start = System.nanoTime();
+        queue.put(item);
+        backpressure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private <T> void startWorkers(String name, int count, BlockingQueue<T> queue, StageHandler<T> handler) {
+        for (int i = 1; i <= count; i++) {
+            Thread thread = crawlExecutor.newThread(name + "-" + i, () -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    try {
+                        handler.handle(queue.take());
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+            thread.start();
+            workers.add(thread);
+        }
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("indexing.pipeline.stage").tag("stage", stage).register(meterRegistry);
+    }
+
+    private static Timer backpressureTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("indexing.pipeline.backpressure").tag("stage", stage).register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    private interface StageHandler<T> {
+        void handle(T item) throws InterruptedException;
+    }
+
+    private record LemmatizedPage(PageEntity page, HashMap<String, PositionList> lemmas) {
     }
 }
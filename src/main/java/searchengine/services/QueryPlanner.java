@@ -0,0 +1,74 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchConfig;
+import searchengine.dto.SiteCount;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.PageRepository;
+import searchengine.services.index.SearchBackend;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Составляет план запроса для каждого сайта: частоты всех лемм запроса по всем сайтам
+ * запрашиваются одним обращением к {@link SearchBackend}, леммы, встречающиеся более чем
+ * на max-lemma-share страниц сайта, отбрасываются (самая редкая остаётся всегда),
+ * остальные упорядочиваются по числу страниц - в этом порядке списки пересекаются дешевле всего.
+ */
+@Component
+@RequiredArgsConstructor
+public class QueryPlanner {
+    private final SearchBackend searchBackend;
+    private final PageRepository pageRepository;
+    private final SearchConfig searchConfig;
+
+    /**
+     * @return id сайта -> леммы в порядке пересечения; леммы, которых нет на сайте, не включаются
+     */
+    public Map<Integer, List<String>> plan(List<SiteEntity> sites, List<String> queryLemmas) {
+        List<Integer> siteIds = sites.stream().map(SiteEntity::getId).toList();
+        Map<Integer, Map<String, Integer>> frequencies = searchBackend.getFrequencies(siteIds, queryLemmas);
+        Map<Integer, Long> pageCounts = getPageCounts(siteIds);
+
+        Map<Integer, List<String>> plans = new HashMap<>();
+        for (Integer siteId : siteIds) {
+            Map<String, Integer> siteFrequencies = frequencies.getOrDefault(siteId, Collections.emptyMap());
+            plans.put(siteId, planSite(siteFrequencies, queryLemmas, pageCounts.get(siteId)));
+        }
+        return plans;
+    }
+
+    private List<String> planSite(Map<String, Integer> frequencies, List<String> queryLemmas, Long pageCount) {
+        List<String> lemmas = queryLemmas.stream()
+                .filter(frequencies::containsKey)
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (lemmas.isEmpty()) {
+            return lemmas;
+        }
+        lemmas.sort(Comparator.comparing((String lemma) -> frequencies.get(lemma)).thenComparing(Comparator.naturalOrder()));
+
+        if (pageCount == null || pageCount == 0) {
+            return lemmas;
+        }
+        double maxFrequency = searchConfig.getMaxLemmaShare() * pageCount;
+        List<String> planned = new ArrayList<>(lemmas.size());
+        planned.add(lemmas.get(0));
+        for (String lemma : lemmas.subList(1, lemmas.size())) {
+            if (frequencies.get(lemma) <= maxFrequency) {
+                planned.add(lemma);
+            }
+        }
+        return planned;
+    }
+
+    private Map<Integer, Long> getPageCounts(List<Integer> siteIds) {
+        double share = searchConfig.getMaxLemmaShare();
+        if (share <= 0 || share >= 1 || siteIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return pageRepository.countBySiteIds(siteIds).stream()
+                .collect(Collectors.toMap(SiteCount::getSiteId, SiteCount::getCount));
+    }
+}
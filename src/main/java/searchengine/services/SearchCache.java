@@ -0,0 +1,79 @@
+package searchengine.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.dto.searching.SearchResponse;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш результатов поиска: отдельно ранжированные списки страниц и готовые ответы для offset/limit.
+ * Ключ строится по леммам запроса и адресу сайта. При изменении сайта удаляются его записи
+ * и записи поиска по всем сайтам; результаты, посчитанные до изменения, в кэш не попадают.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchCache {
+    private final Cache<RankingKey, RankedPages> searchRankingCache;
+    private final Cache<ResponseKey, SearchResponse> searchResponseCache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * @return ранжированный список, если в нём есть первые limit страниц
+     */
+    public RankedPages getRanking(RankingKey key, int limit) {
+        RankedPages ranked = searchRankingCache.getIfPresent(key);
+        return ranked != null && ranked.covers(limit) ? ranked : null;
+    }
+
+    public void putRanking(RankingKey key, RankedPages ranked, long generation) {
+        if (this.generation.get() == generation) {
+            searchRankingCache.asMap().merge(key, ranked, (old, added) -> old.limit() >= added.limit() ? old : added);
+        }
+    }
+
+    public SearchResponse getResponse(RankingKey key, int offset, int limit) {
+        return searchResponseCache.getIfPresent(new ResponseKey(key, offset, limit));
+    }
+
+    public void putResponse(RankingKey key, int offset, int limit, SearchResponse response, long generation) {
+        if (this.generation.get() == generation) {
+            searchResponseCache.put(new ResponseKey(key, offset, limit), response);
+        }
+    }
+
+    public void invalidateSite(String siteUrl) {
+        generation.incrementAndGet();
+        searchRankingCache.asMap().keySet().removeIf(key -> key.matches(siteUrl));
+        searchResponseCache.asMap().keySet().removeIf(key -> key.ranking().matches(siteUrl));
+    }
+
+    public record RankingKey(List<String> lemmas, String siteUrl) {
+        boolean matches(String url) {
+            return siteUrl == null || Objects.equals(siteUrl, url);
+        }
+    }
+
+    public record ResponseKey(RankingKey ranking, int offset, int limit) {
+    }
+
+    /**
+     * @param count общее число найденных страниц
+     * @param limit сколько лучших страниц запрашивалось при ранжировании
+     */
+    public record RankedPages(int count, int limit, List<RankedPage> pages) {
+        boolean covers(int limit) {
+            return limit <= this.limit || pages.size() < this.limit;
+        }
+    }
+
+    public record RankedPage(int siteId, int pageId, float relevance) {
+    }
+}
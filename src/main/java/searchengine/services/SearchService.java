@@ -4,41 +4,49 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
-import searchengine.config.JsoupConfig;
+import searchengine.config.SearchConfig;
 import searchengine.dto.BasicResponse;
 import searchengine.dto.ErrorResponse;
-import searchengine.dto.searching.PageRankingResult;
+import searchengine.dto.searching.PageSearchData;
 import searchengine.dto.searching.SearchDataItem;
 import searchengine.dto.searching.SearchResponse;
-import searchengine.model.LemmaEntity;
-import searchengine.model.PageEntity;
 import searchengine.model.SiteEntity;
-import searchengine.model.StatusEnum;
 import searchengine.repositories.IndexRepository;
-import searchengine.repositories.LemmaRepository;
 import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.services.index.PositionList;
+import searchengine.services.index.PostingIntersection;
+import searchengine.services.index.SearchBackend;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SearchService {
+    private static final Comparator<SearchCache.RankedPage> RANKING_ORDER = Comparator
+            .comparing(SearchCache.RankedPage::relevance, Comparator.reverseOrder())
+            .thenComparingInt(SearchCache.RankedPage::pageId);
 
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
-    private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
+    private final SearchBackend searchBackend;
     private final Lemmatizer lemmatizer;
-    private final JsoupConfig jsoupConfig;
+    private final SnippetBuilder snippetBuilder;
+    private final SearchCache searchCache;
+    private final SearchConfig searchConfig;
+    private final QueryPlanner queryPlanner;
+    private final ExecutorService searchExecutor;
 
-    @Cacheable(value = "searchResults", key = "{ #query, #siteUrl }")
     public BasicResponse search(String query, String siteUrl, int offset, int limit) {
         log.info("Выполнение поискового запроса: {}, siteUrl: {}, offset: {}, limit: {}", query, siteUrl, offset, limit);
         if (query.isBlank()) {
@@ -48,225 +56,229 @@ public class SearchService {
         SiteEntity site = null;
 
         if (siteUrl != null) {
-            site = siteRepository.findByUrl(siteUrl);
+            site = siteRepository.findByUrlAndLiveTrue(siteUrl);
         }
 
-        if (sitesNotIndexing(site)) {
+        List<SiteEntity> sites = siteUrl != null && site == null ? Collections.emptyList() : getIndexedSites(site);
+        if (sites.isEmpty()) {
             return new ErrorResponse("Сайт(ы) не проиндексирован(ы)");
         }
 
-        List<SearchDataItem> dataResults = getSearchResult(query, site);
+        List<String> queryLemmas = lemmatizer.lemmatize(query).keySet().stream().sorted().toList();
+        SearchCache.RankingKey key = new SearchCache.RankingKey(queryLemmas, site == null ? null : site.getUrl());
+        SearchResponse cached = searchCache.getResponse(key, offset, limit);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = searchCache.generation();
+
+        int topLimit = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        boolean partial = false;
+        SearchCache.RankedPages ranked = searchCache.getRanking(key, topLimit);
+        if (ranked == null) {
+            Map<Integer, List<String>> plans = queryPlanner.plan(sites, queryLemmas);
+            List<SiteScores> scores = getSitesScores(sites, plans);
+            partial = scores.size() < sites.size();
+            int countResult = scores.stream().mapToInt(SiteScores::size).sum();
+            ranked = new SearchCache.RankedPages(countResult, topLimit, getTopPages(scores, topLimit));
+            if (!partial) {
+                searchCache.putRanking(key, ranked, generation);
+            }
+        }
 
-        int countResult = dataResults.size();
+        List<SearchCache.RankedPage> top = ranked.pages();
+        List<SearchDataItem> dataResults = offset < top.size()
+                ? getSearchDataItems(top.subList(offset, Math.min(topLimit, top.size())), sites, queryLemmas)
+                : Collections.emptyList();
 
-        if (offset < dataResults.size()) {
-            dataResults = dataResults.subList(offset, Math.min(offset + limit, dataResults.size()));
-        } else {
-            dataResults = Collections.emptyList();
+        SearchResponse response = new SearchResponse(ranked.count(), dataResults, partial);
+        if (!partial) {
+            searchCache.putResponse(key, offset, limit, response, generation);
         }
-
-        return new SearchResponse(countResult, dataResults);
+        return response;
     }
 
-    private boolean sitesNotIndexing(SiteEntity site) {
-        if (site == null) {
-            List<SiteEntity> siteList = siteRepository.findAll();
-            for (SiteEntity s : siteList) {
-                if (s.getStatus() == StatusEnum.INDEXED) {
-                    return false;
-                }
-            }
-        } else {
-            return !(site.getStatus() == StatusEnum.INDEXED);
+    /**
+     * Поиск идёт по действующим поколениям сайтов: такое поколение появляется только после
+     * успешной индексации и остаётся доступным, пока строится следующее.
+     */
+    private List<SiteEntity> getIndexedSites(SiteEntity site) {
+        if (site != null) {
+            return List.of(site);
         }
-        return true;
+        return siteRepository.findAllByLiveTrue();
     }
 
-    private List<SearchDataItem> getSearchResult(String query, SiteEntity site) {
-        List<SearchDataItem> result = new ArrayList<>();
+    /**
+     * Ищет по сайтам параллельно в searchExecutor. Сайты, не успевшие за site-timeout
+     * или не принятые в очередь пула, в результат не входят.
+     */
+    private List<SiteScores> getSitesScores(List<SiteEntity> sites, Map<Integer, List<String>> plans) {
+        if (sites.size() == 1) {
+            return List.of(getSiteScores(sites.get(0), plans.get(sites.get(0).getId())));
+        }
 
-        if (site == null) {
-            List<SiteEntity> siteList = siteRepository.findAll();
-            for (SiteEntity s : siteList) {
-                if (s.getStatus() == StatusEnum.INDEXED) {
-                    result.addAll(getSearchDataItems(s, query));
-                }
+        Map<SiteEntity, Future<SiteScores>> futures = new LinkedHashMap<>();
+        for (SiteEntity site : sites) {
+            try {
+                futures.put(site, searchExecutor.submit(() -> getSiteScores(site, plans.get(site.getId()))));
+            } catch (RejectedExecutionException e) {
+                log.warn("Поиск по сайту " + site.getUrl() + " отклонён: пул поиска перегружен");
             }
-        } else {
-            result.addAll(getSearchDataItems(site, query));
         }
 
-        result.sort(Comparator.comparing(SearchDataItem::getRelevance, Comparator.reverseOrder()).thenComparing(SearchDataItem::getUri));
-
+        long deadline = System.nanoTime() + searchConfig.getSiteTimeout().toNanos();
+        List<SiteScores> result = new ArrayList<>(futures.size());
+        for (Map.Entry<SiteEntity, Future<SiteScores>> entry : futures.entrySet()) {
+            try {
+                result.add(entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                entry.getValue().cancel(true);
+                log.warn("Поиск по сайту " + entry.getKey().getUrl() + " не уложился в " + searchConfig.getSiteTimeout());
+            } catch (ExecutionException e) {
+                log.error("Ошибка поиска по сайту " + entry.getKey().getUrl() + " - " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(f -> f.cancel(true));
+                break;
+            }
+        }
         return result;
     }
 
-    private List<SearchDataItem> getSearchDataItems(SiteEntity site, String query) {
-
-        List<String> queryLemmas = new ArrayList<>(lemmatizer.lemmatize(query).keySet());
-
-        List<SearchDataItem> result = new ArrayList<>();
-
-        LinkedHashMap<String, Integer> sortedLemmas = getSortedLemmas(site, queryLemmas);
-
-        if (sortedLemmas.isEmpty()) {
-            return result;
-        }
-
-        Set<PageEntity> foundedPages = getFoundedPages(sortedLemmas, site);
+    /**
+     * Находит страницы сайта со всеми леммами плана и считает их абсолютную релевантность
+     * по этим леммам, не обращаясь к данным страниц.
+     */
+    private SiteScores getSiteScores(SiteEntity site, List<String> lemmas) {
+        int[] pageIds = getFoundedPages(lemmas, site);
+        float[] rankings = pageIds.length == 0
+                ? new float[0]
+                : searchBackend.getRankings(site.getId(), lemmas, pageIds);
 
         float rMax = 0;
-
-        List<PageRankingResult> pageRankingResults = indexRepository.getTotalRankingForLemmasAndPages(queryLemmas, foundedPages);
-
-        for (PageRankingResult pageRankingResult : pageRankingResults) {
-            PageEntity page = pageRankingResult.getPage();
-            float rAbs = pageRankingResult.getTotalRanking().floatValue();
-            rMax = Math.max(rAbs, rMax);
-            result.add(getSearchDataItem(page, queryLemmas, rAbs));
+        for (float ranking : rankings) {
+            rMax = Math.max(rMax, ranking);
         }
+        return new SiteScores(site, pageIds, rankings, rMax);
+    }
 
-        if (rMax > 0) {
-            for (SearchDataItem dataItem : result) {
-                dataItem.setRelevance(dataItem.getRelevance() / rMax);
+    /**
+     * Отбирает limit лучших страниц всех сайтов кучей ограниченного размера.
+     * Релевантность нормируется на максимальную по сайту, при равенстве выше страница с меньшим id.
+     */
+    private List<SearchCache.RankedPage> getTopPages(List<SiteScores> scores, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<SearchCache.RankedPage> heap = new PriorityQueue<>(Math.min(limit, 1024), RANKING_ORDER.reversed());
+        for (SiteScores siteScores : scores) {
+            for (int i = 0; i < siteScores.size(); i++) {
+                float relevance = siteScores.rMax() > 0
+                        ? siteScores.rankings()[i] / siteScores.rMax()
+                        : siteScores.rankings()[i];
+                if (heap.size() == limit) {
+                    SearchCache.RankedPage worst = heap.peek();
+                    if (relevance < worst.relevance()
+                            || relevance == worst.relevance() && siteScores.pageIds()[i] > worst.pageId()) {
+                        continue;
+                    }
+                    heap.poll();
+                }
+                heap.add(new SearchCache.RankedPage(siteScores.site().getId(), siteScores.pageIds()[i], relevance));
             }
         }
 
-        return result;
+        List<SearchCache.RankedPage> top = new ArrayList<>(heap);
+        top.sort(RANKING_ORDER);
+        return top;
     }
 
-    private SearchDataItem getSearchDataItem(PageEntity page, List<String> queryLemmas, float rAbs) {
-        SearchDataItem dataItem = new SearchDataItem();
-        dataItem.setSite(page.getSite().getUrl());
-        dataItem.setUri(page.getPath());
-        dataItem.setTitle(getPageTitle(page));
-        dataItem.setSiteName(page.getSite().getName());
-        dataItem.setSnippet(getSnippet(queryLemmas, page));
-        dataItem.setRelevance(rAbs);
-        return dataItem;
-    }
-
-    private LinkedHashMap<String, Integer> getSortedLemmas(SiteEntity site, List<String> queryLemmas) {
-        SortedMap<String, Integer> lemmasFrequency = new TreeMap<>();
-
-        for (String queryLemma : queryLemmas) {
-            LemmaEntity lemma = lemmaRepository.findBySiteAndLemma(site, queryLemma);
-            if (lemma == null) {
+    /**
+     * Загружает заголовки, тексты и позиции слов только для выводимых страниц.
+     */
+    private List<SearchDataItem> getSearchDataItems(List<SearchCache.RankedPage> pages, List<SiteEntity> sites,
+                                                    List<String> queryLemmas) {
+        Map<Integer, SiteEntity> sitesById = sites.stream().collect(Collectors.toMap(SiteEntity::getId, s -> s));
+        List<Integer> pageIds = pages.stream().map(SearchCache.RankedPage::pageId).toList();
+
+        Map<Integer, PageSearchData> pagesData = pageRepository.findSearchDataByIds(pageIds).stream()
+                .collect(Collectors.toMap(PageSearchData::getId, p -> p));
+
+        Map<Integer, List<byte[]>> positions = new HashMap<>();
+        indexRepository.getPositionsForLemmasAndPages(queryLemmas, pageIds).forEach(p ->
+                positions.computeIfAbsent(p.getPageId(), id -> new ArrayList<>()).add(p.getPositions()));
+
+        List<SearchDataItem> result = new ArrayList<>(pages.size());
+        for (SearchCache.RankedPage rankedPage : pages) {
+            PageSearchData page = pagesData.get(rankedPage.pageId());
+            SiteEntity site = sitesById.get(rankedPage.siteId());
+            if (page == null || site == null) {
                 continue;
             }
-
-            lemmasFrequency.put(queryLemma, lemma.getFrequency());
+            List<byte[]> pagePositions = positions.getOrDefault(page.getId(), Collections.emptyList());
+            result.add(getSearchDataItem(site, page, queryLemmas, pagePositions, rankedPage.relevance()));
         }
-
-        return lemmasFrequency.entrySet().stream()
-                .sorted(Map.Entry.comparingByValue())
-                .collect(Collectors.toMap(Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (e1, e2) -> e1, LinkedHashMap::new)
-                );
+        return result;
     }
 
-    private Set<PageEntity> getFoundedPages(LinkedHashMap<String, Integer> sortedLemmas, SiteEntity site) {
-        int limitPage = 3;
-        String firstSortedLemma = sortedLemmas.entrySet().iterator().next().getKey();
-        List<PageEntity> pages = pageRepository.findPagesBySiteIdAndLemma(site.getId(), firstSortedLemma);
-        sortedLemmas.remove(firstSortedLemma);
-        for (Map.Entry<String, Integer> entry : sortedLemmas.entrySet()) {
-            if (pages.size() > limitPage) {
-                List<PageEntity> currentLemmaPages = pageRepository.findPagesBySiteIdAndLemma(site.getId(), entry.getKey());
-                pages.retainAll(currentLemmaPages);
-            }
+    private SearchDataItem getSearchDataItem(SiteEntity site, PageSearchData page, List<String> queryLemmas,
+                                             List<byte[]> positions, float relevance) {
+        if (page.getText() == null) {
+            Document doc = Jsoup.parse(pageRepository.findContentById(page.getId()));
+            page.setTitle(doc.title());
+            page.setText(doc.body().text());
         }
-        return new HashSet<>(pages);
-    }
 
-    private String getPageTitle(PageEntity page) {
-        Document html = Jsoup.parse(page.getContent());
-        return html.title();
+        SearchDataItem dataItem = new SearchDataItem();
+        dataItem.setSite(site.getUrl());
+        dataItem.setUri(page.getPath());
+        dataItem.setTitle(page.getTitle());
+        dataItem.setSiteName(site.getName());
+        dataItem.setSnippet(getSnippet(queryLemmas, page, positions));
+        dataItem.setRelevance(relevance);
+        return dataItem;
     }
 
-    private String getSnippet(List<String> queryLemmas, PageEntity page) {
-        String content = "";
-
-        try {
-            Document doc = Jsoup.parse(page.getContent());
-            content = doc.body().text();
-        } catch (Exception ignored) {
-        }
-
-        if (content.isBlank()) {
-            return "";
+    /**
+     * Пересекает списки страниц лемм в порядке плана, начиная с самой редкой.
+     */
+    private int[] getFoundedPages(List<String> lemmas, SiteEntity site) {
+        int[] pages = null;
+        for (String lemma : lemmas) {
+            int[] lemmaPages = searchBackend.findPages(site.getId(), lemma);
+            pages = pages == null ? lemmaPages : PostingIntersection.intersect(pages, lemmaPages);
+            if (pages.length == 0) {
+                break;
+            }
         }
+        return pages == null ? new int[0] : pages;
+    }
 
-        String[] contentWords = content.trim().split("\\s+");
-        List<String> practicedWords = new ArrayList<>();
-        for (String contentWord : contentWords) {
-            HashMap<String, Integer> contentWordLemmaMap = lemmatizer.lemmatize(contentWord);
-            String workWord = contentWord.replaceAll("^[^\\p{L}\\p{N}]+|[^\\p{L}\\p{N}]+$", "");
+    private String getSnippet(List<String> queryLemmas, PageSearchData page, List<byte[]> positions) {
+        if (positions.isEmpty() || positions.contains(null)) {
+            positions = new ArrayList<>();
+            HashMap<String, PositionList> pagePositions = lemmatizer.lemmatizeWithPositions(page.getText());
             for (String queryLemma : queryLemmas) {
-                if (contentWordLemmaMap.get(queryLemma) != null && !practicedWords.contains(workWord)) {
-                    content = content.replaceAll("(?<=\\s|^)" + workWord + "(?=\\s|$)", "<b>" + workWord + "</b>");
-                    practicedWords.add(workWord);
+                PositionList lemmaPositions = pagePositions.get(queryLemma);
+                if (lemmaPositions != null) {
+                    positions.add(lemmaPositions.encode());
                 }
             }
-
-        }
-
-        return createSnippet(content);
-    }
-
-    private String createSnippet(String inputText) {
-        StringBuilder result = new StringBuilder();
-        Pattern pattern = Pattern.compile("<b>[^<>]+</b>");
-        Matcher matcher = pattern.matcher(inputText);
-        int count = 0;
-        while (matcher.find()) {
-            count++;
         }
-        if (count == 0) {
-            return "";
-        }
-        int partLength = jsoupConfig.getSnippetLength() / count / 2;
-        matcher.reset();
-        int firstMatch = 0;
-        int from = 0;
-        int to = 0;
-        int offset = -1;
-        while (matcher.find()) {
-            from = Math.max(from, matcher.start() - partLength);
-            to = Math.min(inputText.length(), matcher.end() + partLength);
-
-            if (offset == -1) {
-                firstMatch = from;
-            }
-
-            if (from <= offset) {
-                from = offset;
-            }
 
-            if (from != 0 && from != offset) {
-                result.append("...");
-            }
+        int[] starts = positions.stream()
+                .flatMapToInt(p -> Arrays.stream(PositionList.decode(p)))
+                .sorted()
+                .distinct()
+                .toArray();
 
-            result.append(inputText, from, to);
-
-            offset = to;
-        }
-
-        if (result.toString().length() < jsoupConfig.getSnippetLength()) {
-            int adding = (jsoupConfig.getSnippetLength() - result.toString().length()) / 2;
-            int start = 0;
-            if (result.toString().startsWith("...")) {
-                start = 3;
-            }
-            result.insert(start, inputText.substring(Math.max(0, firstMatch - adding), firstMatch));
-            result.append(inputText, to, Math.min(inputText.length(), to + adding));
-        }
+        return snippetBuilder.build(page.getText(), starts);
+    }
 
-        if (to < inputText.length()) {
-            result.append("...");
+    private record SiteScores(SiteEntity site, int[] pageIds, float[] rankings, float rMax) {
+        int size() {
+            return pageIds.length;
         }
-
-        return result.toString();
     }
-}
\ No newline at end of file
+}
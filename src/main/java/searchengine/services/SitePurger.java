@@ -0,0 +1,66 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import searchengine.config.BatchConfig;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Удаление данных сайта запросами к таблицам, без загрузки сущностей:
+ * search_index по пачкам id страниц, затем crawl_frontier, lemma и pages пачками по delete-chunk строк.
+ * Каждая пачка - отдельная транзакция, поэтому блокировки держатся недолго.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SitePurger {
+    private final JdbcTemplate jdbcTemplate;
+    private final BatchConfig batchConfig;
+
+    public void purge(int siteId) {
+        long start = System.currentTimeMillis();
+        int chunk = Math.max(1, batchConfig.getDeleteChunk());
+        Integer totalPages = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pages WHERE site_id = ?", Integer.class, siteId);
+        log.info("Удаление данных сайта " + siteId + ": страниц - " + totalPages);
+
+        int processedPages = 0;
+        long indexes = 0;
+        int lastId = 0;
+        while (true) {
+            List<Integer> pageIds = jdbcTemplate.queryForList(
+                    "SELECT id FROM pages WHERE site_id = ? AND id > ? ORDER BY id LIMIT ?",
+                    Integer.class, siteId, lastId, chunk);
+            if (pageIds.isEmpty()) {
+                break;
+            }
+            lastId = pageIds.get(pageIds.size() - 1);
+            String in = String.join(",", Collections.nCopies(pageIds.size(), "?"));
+            indexes += jdbcTemplate.update("DELETE FROM search_index WHERE page_id IN (" + in + ")", pageIds.toArray());
+            processedPages += pageIds.size();
+            log.info("Удаление данных сайта " + siteId + ": индекс очищен для " + processedPages + " из " + totalPages + " страниц");
+        }
+
+        deleteInChunks("DELETE FROM crawl_frontier WHERE site_id = ? LIMIT ?", siteId, chunk);
+        long lemmas = deleteInChunks("DELETE FROM lemma WHERE site_id = ? LIMIT ?", siteId, chunk);
+        log.info("Удаление данных сайта " + siteId + ": удалено лемм - " + lemmas);
+        long pages = deleteInChunks("DELETE FROM pages WHERE site_id = ? LIMIT ?", siteId, chunk);
+        log.info("Удаление данных сайта " + siteId + ": удалено страниц - " + pages);
+        jdbcTemplate.update("DELETE FROM sites WHERE id = ?", siteId);
+
+        log.info("Данные сайта " + siteId + " удалены за " + (System.currentTimeMillis() - start) + " мс, строк индекса - " + indexes);
+    }
+
+    private long deleteInChunks(String sql, int siteId, int chunk) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(sql, siteId, chunk);
+            total += deleted;
+        } while (deleted > 0);
+        return total;
+    }
+}
@@ -0,0 +1,102 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.jsoup.nodes.Entities;
+import org.springframework.stereotype.Component;
+import searchengine.config.JsoupConfig;
+
+/**
+ * Строит сниппет по тексту страницы и смещениям найденных слов,
+ * без повторной лемматизации текста.
+ */
+@Component
+@RequiredArgsConstructor
+public class SnippetBuilder {
+    private static final int MAX_FRAGMENTS = 3;
+    private static final String ELLIPSIS = "...";
+
+    private final JsoupConfig jsoupConfig;
+
+    /**
+     * @param starts отсортированные смещения начала найденных слов
+     */
+    public String build(String text, int[] starts) {
+        if (text == null || text.isBlank() || starts.length == 0) {
+            return "";
+        }
+
+        int snippetLength = jsoupConfig.getSnippetLength();
+        int context = Math.max(1, snippetLength / Math.min(starts.length, MAX_FRAGMENTS) / 2);
+
+        StringBuilder result = new StringBuilder();
+        int visible = 0;
+        int lastEnd = 0;
+        int i = 0;
+        while (i < starts.length && visible < snippetLength) {
+            int from = Math.min(starts[i], Math.max(lastEnd, wordBoundaryAfter(text, starts[i] - context)));
+            while (from < starts[i] && Character.isWhitespace(text.charAt(from))) {
+                from++;
+            }
+            int to = wordEnd(text, starts[i]);
+            int windowEnd = Math.min(text.length(), to + context);
+
+            if (lastEnd > 0 && text.substring(lastEnd, from).isBlank()) {
+                from = lastEnd;
+            } else if (from > lastEnd) {
+                result.append(ELLIPSIS);
+            }
+
+            int cursor = from;
+            while (i < starts.length && starts[i] < windowEnd) {
+                int start = starts[i];
+                int end = wordEnd(text, start);
+                if (start >= cursor) {
+                    result.append(Entities.escape(text.substring(cursor, start)))
+                            .append("<b>").append(Entities.escape(text.substring(start, end))).append("</b>");
+                    visible += end - cursor;
+                    cursor = end;
+                }
+                to = Math.max(to, end);
+                windowEnd = Math.max(windowEnd, Math.min(text.length(), end + context / 2));
+                i++;
+            }
+            to = Math.max(to, wordBoundaryBefore(text, windowEnd));
+            result.append(Entities.escape(text.substring(cursor, to)));
+            visible += to - cursor;
+            lastEnd = to;
+        }
+
+        if (lastEnd < text.length()) {
+            result.append(ELLIPSIS);
+        }
+        return result.toString();
+    }
+
+    private int wordEnd(String text, int start) {
+        int end = start;
+        while (end < text.length() && Character.isLetter(text.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private int wordBoundaryAfter(String text, int position) {
+        if (position <= 0) {
+            return 0;
+        }
+        while (position < text.length() && Character.isLetterOrDigit(text.charAt(position - 1))) {
+            position++;
+        }
+        return position;
+    }
+
+    private int wordBoundaryBefore(String text, int position) {
+        if (position >= text.length()) {
+            return text.length();
+        }
+        while (position > 0 && Character.isLetterOrDigit(text.charAt(position))) {
+            position--;
+        }
+        return position;
+    }
+}
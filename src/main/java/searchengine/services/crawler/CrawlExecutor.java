@@ -0,0 +1,162 @@
+package searchengine.services.crawler;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerConfig;
+import searchengine.config.SitesList;
+import searchengine.services.fetch.HostRateController;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Потоки обхода и индексации отдельных страниц: пул фиксированного размера, чтобы обход не занимал
+ * общий ForkJoinPool. Размер пула - по задаче обхода, threads-per-site задач загрузки и задаче sitemap
+ * на каждый сайт из конфигурации, плюс потоки для индексации отдельных страниц и удаления данных.
+ * Одновременные загрузки ограничиваются общим семафором (max-threads), темп и число запросов
+ * к каждому хосту - {@link HostRateController}, очередь индексации отдельных страниц - max-pending-pages.
+ * Фоновые потоки других сервисов создаются через {@link #newThread}.
+ */
+@Slf4j
+@Component
+public class CrawlExecutor {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+    private static final int EXTRA_THREADS = 2;
+
+    private final HostRateController rateController;
+    private final ExecutorService executor;
+    private final Semaphore globalPermits;
+    private final Semaphore pagePermits;
+    private final Set<Future<?>> pageTasks = ConcurrentHashMap.newKeySet();
+
+    public CrawlExecutor(CrawlerConfig config, SitesList sites, HostRateController rateController) {
+        this.rateController = rateController;
+        int siteCount = sites.getSites() == null ? 0 : sites.getSites().size();
+        this.executor = createExecutor(siteCount * (Math.max(1, config.getThreadsPerSite()) + 2) + EXTRA_THREADS);
+        this.globalPermits = new Semaphore(Math.max(1, config.getMaxThreads()));
+        this.pagePermits = new Semaphore(Math.max(1, config.getMaxPendingPages()));
+    }
+
+    public CompletableFuture<Void> runAsync(Runnable task) {
+        return CompletableFuture.runAsync(task, executor);
+    }
+
+    public Future<?> submit(Runnable task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Ставит в очередь индексацию отдельной страницы.
+     *
+     * @return false, если очередь заполнена
+     */
+    public boolean submitPage(Runnable task) {
+        if (!pagePermits.tryAcquire()) {
+            return false;
+        }
+        FutureTask<Void> future = new FutureTask<>(task, null) {
+            @Override
+            protected void done() {
+                pageTasks.remove(this);
+                pagePermits.release();
+            }
+        };
+        pageTasks.add(future);
+        try {
+            executor.execute(future);
+        } catch (RuntimeException e) {
+            future.cancel(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Прерывает индексацию отдельных страниц, в том числе ещё не начатую.
+     */
+    public void cancelPages() {
+        pageTasks.forEach(task -> task.cancel(true));
+    }
+
+    /**
+     * Выполняет загрузку, дождавшись очереди хоста и общего разрешения.
+     */
+    public <T> T withPermits(String url, Callable<T> action) throws Exception {
+        rateController.acquire(url);
+        try {
+            globalPermits.acquire();
+            try {
+                return action.call();
+            } finally {
+                globalPermits.release();
+            }
+        } finally {
+            rateController.release(url);
+        }
+    }
+
+    /**
+     * Запускает загрузку, дождавшись очереди хоста и общего разрешения. Разрешения занимаются,
+     * пока не завершится future, которую вернуло действие, а вызывающий поток сразу освобождается.
+     */
+    public <T> CompletableFuture<T> withPermitsAsync(String url, Supplier<CompletableFuture<T>> action)
+            throws InterruptedException {
+        rateController.acquire(url);
+        try {
+            globalPermits.acquire();
+        } catch (InterruptedException e) {
+            rateController.release(url);
+            throw e;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = action.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, e) -> {
+            globalPermits.release();
+            rateController.release(url);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Задачи обхода не завершились за " + SHUTDOWN_TIMEOUT_SECONDS + " с");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Фоновый поток-демон, не привязанный к пулу обхода.
+     */
+    public Thread newThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private ExecutorService createExecutor(int threads) {
+        log.info("Потоков обхода: " + threads);
+        AtomicInteger number = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> newThread("crawler-" + number.incrementAndGet(), runnable));
+    }
+}
@@ -0,0 +1,11 @@
+package searchengine.services.crawler;
+
+/**
+ * Состояние обхода сайта для статистики.
+ *
+ * @param visitedPages   обработано страниц
+ * @param queueSize      ссылок в очереди
+ * @param pagesPerSecond средняя скорость обхода с начала
+ */
+public record CrawlProgress(int visitedPages, int queueSize, double pagesPerSecond) {
+}
@@ -0,0 +1,12 @@
+package searchengine.services.crawler;
+
+import java.util.function.Predicate;
+
+@FunctionalInterface
+public interface CrawlSeeder {
+    /**
+     * Добавляет в очередь обхода ссылки, найденные не на страницах сайта (например, в sitemap).
+     * enqueue возвращает false, если обход остановлен и дальше добавлять не нужно.
+     */
+    void seed(Predicate<String> enqueue) throws Exception;
+}
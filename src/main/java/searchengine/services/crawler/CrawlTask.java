@@ -0,0 +1,4 @@
+package searchengine.services.crawler;
+
+public record CrawlTask(String url, int depth) {
+}
@@ -0,0 +1,16 @@
+package searchengine.services.crawler;
+
+import searchengine.model.SiteEntity;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+@FunctionalInterface
+public interface CrawlVisitor {
+    /**
+     * Запускает обработку страницы. Future завершается найденными на ней ссылками,
+     * которые нужно добавить в очередь обхода. Метод блокируется, только пока загрузка
+     * ждёт разрешения (очередь хоста, общий лимит).
+     */
+    CompletableFuture<Collection<String>> visit(SiteEntity site, String url) throws InterruptedException;
+}
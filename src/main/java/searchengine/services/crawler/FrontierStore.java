@@ -0,0 +1,138 @@
+package searchengine.services.crawler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import searchengine.model.FrontierEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Контрольная точка обхода в таблице crawl_frontier: найденные, но ещё не обработанные ссылки.
+ * Изменения копятся в памяти и записываются раз в checkpoint-interval. Ссылка удаляется
+ * из таблицы только после того, как страница записана в базу (или записывать нечего),
+ * поэтому после сбоя обход продолжается без потери страниц.
+ * Учитываются только сайты, для которых вызван {@link #track}. Ссылки длиннее столбцов таблицы
+ * не сохраняются: при продолжении обхода после сбоя такие страницы, найденные до сбоя, пропускаются.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FrontierStore {
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Set<Integer> tracked = ConcurrentHashMap.newKeySet();
+    private final Object bufferLock = new Object();
+    private final Object flushLock = new Object();
+    private List<Object[]> added = new ArrayList<>();
+    private List<Object[]> visited = new ArrayList<>();
+
+    public void track(int siteId) {
+        tracked.add(siteId);
+    }
+
+    public boolean hasCheckpoint(int siteId) {
+        Integer found = jdbcTemplate.query("SELECT 1 FROM crawl_frontier WHERE site_id = ? LIMIT 1",
+                rs -> rs.next() ? rs.getInt(1) : null, siteId);
+        return found != null;
+    }
+
+    /**
+     * Необработанные ссылки сайта из последней контрольной точки. Ссылки на страницы, которые уже
+     * записаны в базу, но не успели удалиться из контрольной точки, удаляются и не возвращаются.
+     */
+    public List<CrawlTask> load(int siteId) {
+        synchronized (flushLock) {
+            jdbcTemplate.update("DELETE f FROM crawl_frontier f JOIN pages p ON p.site_id = f.site_id AND p.path = f.path " +
+                    "WHERE f.site_id = ?", siteId);
+        }
+        return jdbcTemplate.query("SELECT url, depth FROM crawl_frontier WHERE site_id = ? ORDER BY id",
+                (rs, row) -> new CrawlTask(rs.getString(1), rs.getInt(2)), siteId);
+    }
+
+    public void added(int siteId, String path, String url, int depth) {
+        if (!tracked.contains(siteId)) {
+            return;
+        }
+        if (!fits(path, url)) {
+            log.debug("Ссылка слишком длинная для контрольной точки: {}", url);
+            return;
+        }
+        synchronized (bufferLock) {
+            added.add(new Object[]{siteId, path, url, depth});
+        }
+    }
+
+    public void visited(int siteId, String path) {
+        if (!tracked.contains(siteId) || path.length() > FrontierEntity.MAX_PATH_LENGTH) {
+            return;
+        }
+        synchronized (bufferLock) {
+            visited.add(new Object[]{siteId, path});
+        }
+    }
+
+    /**
+     * Записывает накопленные изменения: сначала новые ссылки, затем удаление обработанных,
+     * чтобы ссылки страницы попадали в таблицу не позже, чем из неё удаляется сама страница.
+     */
+    @Scheduled(fixedDelayString = "${crawler-settings.checkpoint-interval:5000}")
+    public void flush() {
+        List<Object[]> addedBatch;
+        List<Object[]> visitedBatch;
+        synchronized (bufferLock) {
+            if (added.isEmpty() && visited.isEmpty()) {
+                return;
+            }
+            addedBatch = added;
+            visitedBatch = visited;
+            added = new ArrayList<>();
+            visited = new ArrayList<>();
+        }
+        synchronized (flushLock) {
+            try {
+                if (!addedBatch.isEmpty()) {
+                    jdbcTemplate.batchUpdate("INSERT INTO crawl_frontier (site_id, path, url, depth) VALUES (?, ?, ?, ?) " +
+                            "ON DUPLICATE KEY UPDATE depth = LEAST(depth, VALUES(depth))", addedBatch);
+                }
+                if (!visitedBatch.isEmpty()) {
+                    jdbcTemplate.batchUpdate("DELETE FROM crawl_frontier WHERE site_id = ? AND path = ?", visitedBatch);
+                }
+            } catch (Exception e) {
+                log.error("Не удалось записать очередь обхода - " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static boolean fits(String path, String url) {
+        return path.length() <= FrontierEntity.MAX_PATH_LENGTH && url.length() <= FrontierEntity.MAX_URL_LENGTH;
+    }
+
+    /**
+     * Удаляет контрольную точку сайта после завершённого обхода.
+     */
+    public void clear(int siteId) {
+        tracked.remove(siteId);
+        synchronized (bufferLock) {
+            added.removeIf(row -> (int) row[0] == siteId);
+            visited.removeIf(row -> (int) row[0] == siteId);
+        }
+        synchronized (flushLock) {
+            jdbcTemplate.update("DELETE FROM crawl_frontier WHERE site_id = ?", siteId);
+        }
+    }
+
+    /**
+     * Записывает изменения и прекращает учёт сайта; контрольная точка остаётся в таблице.
+     */
+    public void release(int siteId) {
+        flush();
+        tracked.remove(siteId);
+    }
+}
@@ -0,0 +1,210 @@
+package searchengine.services.crawler;
+
+import lombok.extern.slf4j.Slf4j;
+import searchengine.config.CrawlerConfig;
+import searchengine.model.SiteEntity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Обход одного сайта через очередь ссылок (frontier).
+ * Очередь обслуживают threadsPerSite задач {@link CrawlExecutor}: задача берёт ссылку, дожидается
+ * разрешения на загрузку и запускает её, не ожидая ответа; разбор и сохранение страницы
+ * выполняются по завершении загрузки, там же в очередь добавляются найденные ссылки. Параллельно с ними
+ * {@link CrawlSeeder} может добавлять ссылки из sitemap. Повторы отсекаются
+ * по пути страницы в {@link VisitedUrlSet}, без запросов к базе.
+ * Новые ссылки передаются в {@link FrontierStore} для контрольной точки.
+ */
+@Slf4j
+public class SiteCrawler {
+    private static final long POLL_TIMEOUT_MS = 100;
+
+    private final SiteEntity site;
+    private final CrawlerConfig config;
+    private final CrawlExecutor executor;
+    private final CrawlVisitor visitor;
+    private final VisitedUrlSet visited;
+    private final FrontierStore frontierStore;
+
+    private final BlockingQueue<CrawlTask> frontier = new LinkedBlockingQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicInteger scheduled = new AtomicInteger();
+    private final AtomicInteger visitedPages = new AtomicInteger();
+    private final List<Future<?>> workers = new ArrayList<>();
+    private final Set<CompletableFuture<?>> visits = ConcurrentHashMap.newKeySet();
+    private volatile long startedAt;
+    private volatile boolean stopped;
+
+    public SiteCrawler(SiteEntity site, CrawlerConfig config, CrawlExecutor executor,
+                       VisitedUrlSet visited, FrontierStore frontierStore, CrawlVisitor visitor) {
+        this.site = site;
+        this.config = config;
+        this.executor = executor;
+        this.visited = visited;
+        this.frontierStore = frontierStore;
+        this.visitor = visitor;
+    }
+
+    /**
+     * @param resumed ссылки из контрольной точки прерванного обхода; если пусто, обход начинается с главной страницы.
+     *                Пути этих ссылок и уже сохранённых страниц должны быть в множестве visited
+     * @param seeder  дополнительный источник ссылок или null
+     */
+    public void crawl(List<CrawlTask> resumed, CrawlSeeder seeder) throws InterruptedException {
+        startedAt = System.nanoTime();
+        if (resumed.isEmpty()) {
+            enqueue(site.getUrl(), 0);
+        } else {
+            scheduled.set(visited.size());
+            pending.addAndGet(resumed.size());
+            frontier.addAll(resumed);
+        }
+
+        int threads = Math.max(1, config.getThreadsPerSite());
+        synchronized (workers) {
+            if (seeder != null && !stopped) {
+                pending.incrementAndGet();
+                workers.add(executor.submit(() -> seed(seeder)));
+            }
+            for (int i = 0; i < threads && !stopped; i++) {
+                workers.add(executor.submit(this::work));
+            }
+        }
+
+        try {
+            for (Future<?> worker : workers) {
+                try {
+                    worker.get();
+                } catch (CancellationException ignored) {
+                } catch (ExecutionException e) {
+                    log.error(site.getUrl() + " - " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+            awaitVisits();
+        } catch (InterruptedException e) {
+            stop();
+            throw e;
+        }
+    }
+
+    /**
+     * После остановки задачи обхода завершаются сразу, а запущенные загрузки ещё обрабатываются:
+     * обход заканчивается, когда они завершатся.
+     */
+    private void awaitVisits() throws InterruptedException {
+        try {
+            CompletableFuture.allOf(visits.toArray(CompletableFuture[]::new)).get();
+        } catch (ExecutionException ignored) {
+        }
+    }
+
+    /**
+     * Останавливает обход, прерывая загрузки, которые уже выполняются.
+     */
+    public void stop() {
+        stopped = true;
+        frontier.clear();
+        synchronized (workers) {
+            workers.forEach(worker -> worker.cancel(true));
+        }
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    public CrawlProgress getProgress() {
+        int visited = visitedPages.get();
+        double seconds = startedAt == 0 ? 0 : (System.nanoTime() - startedAt) / 1e9;
+        return new CrawlProgress(visited, frontier.size(), seconds > 0 ? visited / seconds : 0);
+    }
+
+    private void work() {
+        while (!stopped && pending.get() > 0) {
+            CrawlTask task;
+            try {
+                task = frontier.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (task == null) {
+                continue;
+            }
+
+            CompletableFuture<Collection<String>> visit;
+            try {
+                visit = visitor.visit(site, task.url());
+            } catch (InterruptedException e) {
+                done();
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error(task.url() + " - " + e.getMessage(), e);
+                done();
+                continue;
+            }
+            CompletableFuture<?> handled = visit.handle((links, e) -> {
+                if (e != null) {
+                    log.error(task.url() + " - " + e.getMessage(), e);
+                } else if (config.getMaxDepth() <= 0 || task.depth() < config.getMaxDepth()) {
+                    links.forEach(link -> enqueue(link, task.depth() + 1));
+                }
+                return null;
+            });
+            visits.add(handled);
+            handled.whenComplete((x, e) -> {
+                visits.remove(handled);
+                done();
+            });
+        }
+    }
+
+    private void done() {
+        visitedPages.incrementAndGet();
+        pending.decrementAndGet();
+    }
+
+    /**
+     * Пока источник ссылок работает, счётчик pending не опускается до нуля и обход не завершается.
+     */
+    private void seed(CrawlSeeder seeder) {
+        try {
+            seeder.seed(url -> {
+                enqueue(url, 1);
+                return !stopped;
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn(site.getUrl() + " - " + e.getMessage(), e);
+        } finally {
+            pending.decrementAndGet();
+        }
+    }
+
+    private void enqueue(String url, int depth) {
+        String path = UrlUtils.getPath(url);
+        if (stopped || !visited.add(path)) {
+            return;
+        }
+        if (config.getMaxPages() > 0 && scheduled.incrementAndGet() > config.getMaxPages()) {
+            return;
+        }
+        pending.incrementAndGet();
+        frontierStore.added(site.getId(), path, url, depth);
+        frontier.add(new CrawlTask(url, depth));
+    }
+}
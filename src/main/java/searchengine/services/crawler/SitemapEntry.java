@@ -0,0 +1,9 @@
+package searchengine.services.crawler;
+
+import java.time.Instant;
+
+/**
+ * Адрес из sitemap; lastModified - значение lastmod или null.
+ */
+public record SitemapEntry(String url, Instant lastModified) {
+}
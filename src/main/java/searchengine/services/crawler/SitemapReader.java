@@ -0,0 +1,183 @@
+package searchengine.services.crawler;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerConfig;
+import searchengine.services.fetch.PageFetcher;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Потоковый разбор sitemap (StAX): файлы urlset, sitemapindex и их варианты в gzip.
+ * Адреса передаются обработчику по мере чтения, весь файл в памяти не хранится.
+ * Вложенные sitemap загружаются по очереди, не больше crawler-settings.max-sitemaps файлов.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SitemapReader {
+    private static final XMLInputFactory XML_FACTORY = createFactory();
+
+    private final PageFetcher pageFetcher;
+    private final CrawlerConfig crawlerConfig;
+
+    /**
+     * @param sitemaps адреса sitemap из robots.txt; если пусто, проверяется /sitemap.xml сайта
+     * @param handler  получает адреса страниц; false прекращает чтение
+     * @return количество прочитанных адресов страниц
+     */
+    public int read(String siteUrl, Collection<String> sitemaps, Predicate<SitemapEntry> handler)
+            throws InterruptedException {
+        URI site = URI.create(siteUrl);
+        Deque<String> queue = new ArrayDeque<>();
+        if (sitemaps.isEmpty()) {
+            queue.add(site.resolve("/sitemap.xml").toString());
+        } else {
+            sitemaps.forEach(sitemap -> queue.add(site.resolve(sitemap.trim()).toString()));
+        }
+
+        Set<String> seen = new HashSet<>();
+        int files = 0;
+        int[] urls = {0};
+        while (!queue.isEmpty() && files < Math.max(1, crawlerConfig.getMaxSitemaps())) {
+            String sitemap = queue.poll();
+            if (!seen.add(sitemap)) {
+                continue;
+            }
+            files++;
+            try (InputStream stream = unzip(pageFetcher.openStream(sitemap))) {
+                boolean proceed = parse(stream, queue::add, entry -> {
+                    urls[0]++;
+                    return handler.test(entry);
+                });
+                if (!proceed) {
+                    break;
+                }
+            } catch (IOException | XMLStreamException e) {
+                log.warn("Sitemap " + sitemap + " - " + e.getMessage());
+            }
+        }
+        log.info("Сайт - " + siteUrl + " - sitemap: файлов " + files + ", адресов " + urls[0]);
+        return urls[0];
+    }
+
+    /**
+     * Учитываются только loc и lastmod, вложенные непосредственно в url или sitemap:
+     * одноимённые элементы расширений (image:loc, video:loc и т.п.) лежат глубже и пропускаются.
+     *
+     * @return false, если обработчик прекратил чтение
+     */
+    static boolean parse(InputStream stream, Consumer<String> nestedSitemaps,
+                         Predicate<SitemapEntry> handler) throws XMLStreamException {
+        XMLStreamReader reader = XML_FACTORY.createXMLStreamReader(stream);
+        try {
+            boolean index = false;
+            int depth = 0;
+            String loc = null;
+            String lastmod = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = reader.getLocalName();
+                    if (depth == 1) {
+                        index = name.equals("sitemapindex");
+                    } else if (depth == 2) {
+                        loc = null;
+                        lastmod = null;
+                    } else if (depth == 3 && (name.equals("loc") || name.equals("lastmod"))) {
+                        String text = reader.getElementText().trim();
+                        depth--;
+                        if (name.equals("loc")) {
+                            loc = text;
+                        } else {
+                            lastmod = text;
+                        }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                    if (depth != 1 || loc == null || loc.isEmpty()) {
+                        continue;
+                    }
+                    String name = reader.getLocalName();
+                    if (index && name.equals("sitemap")) {
+                        nestedSitemaps.accept(loc);
+                    } else if (!index && name.equals("url")
+                            && !handler.test(new SitemapEntry(loc, parseLastmod(lastmod)))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Дата в формате W3C Datetime: 2024-05-01, 2024-05-01T10:00+03:00 и т.п.
+     * Время без часового пояса считается местным, дата без времени - концом дня,
+     * чтобы изменения в день индексации не пропускались.
+     */
+    static Instant parseLastmod(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (value.length() == 10) {
+                return LocalDate.parse(value).plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            try {
+                return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant();
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Файлы sitemap.xml.gz обычно отдаются как application/gzip, без Content-Encoding,
+     * поэтому сжатие определяется по сигнатуре.
+     */
+    private InputStream unzip(InputStream stream) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(stream);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        return first == 0x1f && second == 0x8b ? new GZIPInputStream(buffered) : buffered;
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+}
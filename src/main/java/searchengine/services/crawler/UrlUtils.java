@@ -0,0 +1,35 @@
+package searchengine.services.crawler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.Locale;
+
+@Slf4j
+public final class UrlUtils {
+    private UrlUtils() {
+    }
+
+    public static String getPath(String urlString) {
+        try {
+            URL url = new URI(urlString).toURL();
+            return url.getPath().isEmpty() ? "/" : url.getPath();
+        } catch (Exception e) {
+            log.error(e.getMessage());
+        }
+        return "";
+    }
+
+    /**
+     * @return хост в нижнем регистре или пустая строка для некорректного адреса
+     */
+    public static String getHost(String urlString) {
+        try {
+            String host = URI.create(urlString).getHost();
+            return host == null ? "" : host.toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package searchengine.services.crawler;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.model.SiteEntity;
+import searchengine.repositories.PageRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@RequiredArgsConstructor
+public class VisitedUrlRegistry {
+    private final PageRepository pageRepository;
+    private final Map<Integer, VisitedUrlSet> sets = new ConcurrentHashMap<>();
+
+    /**
+     * Новое пустое множество для полного обхода сайта, данные которого удалены.
+     */
+    public VisitedUrlSet reset(SiteEntity site) {
+        VisitedUrlSet set = new VisitedUrlSet();
+        sets.put(site.getId(), set);
+        return set;
+    }
+
+    /**
+     * Множество сайта, заполненное путями из таблицы pages при первом обращении.
+     */
+    public VisitedUrlSet forSite(SiteEntity site) {
+        return sets.computeIfAbsent(site.getId(), id -> {
+            VisitedUrlSet set = new VisitedUrlSet();
+            pageRepository.findPathsBySiteId(id).forEach(set::add);
+            return set;
+        });
+    }
+
+    public void remove(SiteEntity site) {
+        sets.remove(site.getId());
+    }
+}
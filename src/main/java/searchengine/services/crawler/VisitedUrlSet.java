@@ -0,0 +1,44 @@
+package searchengine.services.crawler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Множество уже найденных путей сайта. Хранит 64-битные отпечатки путей,
+ * а не сами строки, чтобы на больших сайтах не держать в памяти все URL.
+ */
+public class VisitedUrlSet {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Set<Long> fingerprints = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @return true, если путь раньше не встречался
+     */
+    public boolean add(String path) {
+        return fingerprints.add(fingerprint(path));
+    }
+
+    public boolean contains(String path) {
+        return fingerprints.contains(fingerprint(path));
+    }
+
+    public void remove(String path) {
+        fingerprints.remove(fingerprint(path));
+    }
+
+    public int size() {
+        return fingerprints.size();
+    }
+
+    static long fingerprint(String path) {
+        long hash = FNV_OFFSET;
+        for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
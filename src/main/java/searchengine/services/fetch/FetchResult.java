@@ -0,0 +1,17 @@
+package searchengine.services.fetch;
+
+import org.jsoup.nodes.Document;
+
+import java.net.HttpURLConnection;
+
+/**
+ * Ответ на запрос страницы.
+ *
+ * @param document разобранная страница, null для ответа 304
+ */
+public record FetchResult(int statusCode, String etag, String lastModified, Document document) {
+
+    public boolean isNotModified() {
+        return statusCode == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+}
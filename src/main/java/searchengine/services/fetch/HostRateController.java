@@ -0,0 +1,173 @@
+package searchengine.services.fetch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerConfig;
+import searchengine.config.RateConfig;
+import searchengine.config.SiteConfig;
+import searchengine.services.crawler.UrlUtils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Темп запросов к каждому хосту по схеме AIMD. Пока сервер отвечает быстрее target-latency,
+ * пауза между запросами уменьшается на delay-step, а число одновременных запросов растёт на 1
+ * за каждую серию успешных ответов. Ответы 429/503, тайм-ауты и медленные ответы удваивают
+ * паузу и вдвое сокращают число одновременных запросов. Retry-After (не больше max-retry-after)
+ * откладывает следующий запрос к хосту, Crawl-delay из robots.txt и настройки сайта задают нижнюю границу паузы.
+ */
+@Slf4j
+@Component
+public class HostRateController {
+    private final RateConfig rateConfig;
+    private final CrawlerConfig crawlerConfig;
+    private final Map<String, HostThrottle> hosts = new ConcurrentHashMap<>();
+
+    public HostRateController(RateConfig rateConfig, CrawlerConfig crawlerConfig) {
+        this.rateConfig = rateConfig;
+        this.crawlerConfig = crawlerConfig;
+    }
+
+    /**
+     * Задаёт границы для хоста сайта с учётом его настроек и Crawl-delay из robots.txt.
+     */
+    public void configure(SiteConfig site, Duration crawlDelay) {
+        Duration minDelay = site.getMinDelay() != null ? site.getMinDelay() : rateConfig.getMinDelay();
+        if (crawlDelay != null && rateConfig.isRespectCrawlDelay() && crawlDelay.compareTo(minDelay) > 0) {
+            minDelay = crawlDelay;
+        }
+        Duration maxDelay = site.getMaxDelay() != null ? site.getMaxDelay() : rateConfig.getMaxDelay();
+        int maxConnections = site.getMaxConnections() != null
+                ? site.getMaxConnections() : crawlerConfig.getMaxThreadsPerHost();
+        String host = UrlUtils.getHost(site.getUrl());
+        throttle(host).setLimits(minDelay.toNanos(), Math.max(minDelay.toNanos(), maxDelay.toNanos()),
+                Math.max(1, maxConnections));
+        log.info("Хост " + host + ": пауза от " + minDelay.toMillis() + " до " + maxDelay.toMillis()
+                + " мс, соединений до " + maxConnections);
+    }
+
+    /**
+     * Ждёт, пока к хосту можно отправить следующий запрос, и занимает место среди одновременных.
+     * Место освобождается {@link #release}.
+     */
+    public void acquire(String url) throws InterruptedException {
+        throttle(UrlUtils.getHost(url)).acquire();
+    }
+
+    public void release(String url) {
+        throttle(UrlUtils.getHost(url)).release();
+    }
+
+    /**
+     * Учитывает ответ сервера.
+     *
+     * @param latency    время до получения заголовков ответа
+     * @param retryAfter значение Retry-After или null
+     */
+    public void onResponse(String url, int statusCode, Duration latency, Duration retryAfter) {
+        HostThrottle throttle = throttle(UrlUtils.getHost(url));
+        if (statusCode == 429 || statusCode == 503) {
+            if (retryAfter != null && retryAfter.compareTo(rateConfig.getMaxRetryAfter()) > 0) {
+                retryAfter = rateConfig.getMaxRetryAfter();
+            }
+            throttle.backOff(retryAfter);
+        } else if (latency.compareTo(rateConfig.getTargetLatency()) > 0) {
+            throttle.backOff(null);
+        } else {
+            throttle.speedUp(rateConfig.getDelayStep().toNanos());
+        }
+    }
+
+    /**
+     * Учитывает тайм-аут или обрыв соединения.
+     */
+    public void onFailure(String url) {
+        throttle(UrlUtils.getHost(url)).backOff(null);
+    }
+
+    private HostThrottle throttle(String host) {
+        return hosts.computeIfAbsent(host, h -> new HostThrottle(
+                rateConfig.getInitialDelay().toNanos(),
+                rateConfig.getMinDelay().toNanos(),
+                Math.max(rateConfig.getMinDelay().toNanos(), rateConfig.getMaxDelay().toNanos()),
+                Math.max(1, crawlerConfig.getMaxThreadsPerHost())));
+    }
+
+    private static class HostThrottle {
+        private final long initialDelay;
+        private long minDelay;
+        private long maxDelay;
+        private int maxConnections;
+        private long delay;
+        private int connections = 1;
+        private int inFlight;
+        private int successes;
+        private long nextAt = System.nanoTime();
+
+        HostThrottle(long delay, long minDelay, long maxDelay, int maxConnections) {
+            this.initialDelay = delay;
+            this.minDelay = minDelay;
+            this.maxDelay = maxDelay;
+            this.maxConnections = maxConnections;
+            this.delay = Math.min(maxDelay, Math.max(minDelay, delay));
+        }
+
+        synchronized void setLimits(long minDelay, long maxDelay, int maxConnections) {
+            this.minDelay = minDelay;
+            this.maxDelay = maxDelay;
+            this.maxConnections = maxConnections;
+            delay = Math.min(maxDelay, Math.max(minDelay, delay));
+            connections = Math.min(connections, maxConnections);
+            notifyAll();
+        }
+
+        synchronized void acquire() throws InterruptedException {
+            while (true) {
+                long now = System.nanoTime();
+                if (inFlight < connections && now - nextAt >= 0) {
+                    inFlight++;
+                    nextAt = now + delay;
+                    return;
+                }
+                if (inFlight >= connections) {
+                    wait();
+                } else {
+                    TimeUnit.NANOSECONDS.timedWait(this, nextAt - now);
+                }
+            }
+        }
+
+        synchronized void release() {
+            inFlight--;
+            notifyAll();
+        }
+
+        synchronized void speedUp(long step) {
+            delay = Math.max(minDelay, delay - step);
+            if (++successes >= connections) {
+                successes = 0;
+                if (connections < maxConnections) {
+                    connections++;
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized void backOff(Duration retryAfter) {
+            delay = Math.min(maxDelay, Math.max(Math.max(minDelay, initialDelay), delay * 2));
+            connections = Math.max(1, connections / 2);
+            successes = 0;
+            long now = System.nanoTime();
+            long earliest = now + delay;
+            if (retryAfter != null && retryAfter.toNanos() > delay) {
+                earliest = now + retryAfter.toNanos();
+            }
+            if (earliest - nextAt > 0) {
+                nextAt = earliest;
+            }
+        }
+    }
+}
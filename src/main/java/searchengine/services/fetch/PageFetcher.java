@@ -0,0 +1,487 @@
+package searchengine.services.fetch;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.springframework.stereotype.Component;
+import searchengine.config.FetcherConfig;
+import searchengine.config.JsoupConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Загрузка страниц через один общий {@link HttpClient}: соединения с хостом переиспользуются
+ * (keep-alive, для HTTP/2 - мультиплексирование), ответ запрашивается сжатым (gzip, deflate).
+ * Тело страницы собирается в буфер по мере поступления данных, не больше max-body-size байт,
+ * и ни один поток не ждёт сети: пока запрос выполняется, поток обхода может запускать следующие.
+ * Время до получения заголовков ответа и коды 429/503 передаются в {@link HostRateController}.
+ */
+@Slf4j
+@Component
+public class PageFetcher {
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private final HttpClient client;
+    private final FetcherConfig fetcherConfig;
+    private final JsoupConfig jsoupConfig;
+    private final HostRateController rateController;
+    private final ScheduledThreadPoolExecutor deadlines;
+    private final Set<CompletableFuture<?>> inFlight = ConcurrentHashMap.newKeySet();
+
+    public PageFetcher(FetcherConfig fetcherConfig, JsoupConfig jsoupConfig, HostRateController rateController) {
+        this.fetcherConfig = fetcherConfig;
+        this.jsoupConfig = jsoupConfig;
+        this.rateController = rateController;
+        client = HttpClient.newBuilder()
+                .version(fetcherConfig.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(fetcherConfig.getConnectTimeout())
+                .build();
+        deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "fetch-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        deadlines.shutdownNow();
+    }
+
+    /**
+     * Загружает и разбирает страницу. Разбор выполняется в потоке HttpClient, когда тело получено.
+     * Ответы с кодом 400 и выше завершаются {@link HttpStatusException},
+     * не HTML - {@link UnsupportedMimeTypeException}, как у Jsoup. Отмена future прерывает запрос.
+     */
+    public CompletableFuture<FetchResult> fetchAsync(String url, Map<String, String> headers) {
+        HttpRequest request;
+        try {
+            request = request(url, headers);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(new IOException("Некорректный адрес " + url, e));
+        }
+        CompletableFuture<HttpResponse<Body>> exchange = send(url, request, bodyHandler(this::isPage));
+        CompletableFuture<FetchResult> result = exchange.thenApply(response -> {
+            try {
+                return toResult(url, response);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Синхронный вариант {@link #fetchAsync}, исключения загрузки пробрасываются как есть.
+     * При прерывании потока запрос отменяется.
+     */
+    public FetchResult fetch(String url, Map<String, String> headers) throws IOException, InterruptedException {
+        return await(fetchAsync(url, headers));
+    }
+
+    /**
+     * Отменяет все выполняющиеся запросы, в том числе уже получившие заголовки ответа.
+     */
+    public void cancelAll() {
+        inFlight.forEach(exchange -> exchange.cancel(true));
+    }
+
+    /**
+     * Тело ответа потоком, распакованное по Content-Encoding, без ограничения max-body-size.
+     * Используется для sitemap, которые разбираются по мере чтения; поток закрывает вызывающий.
+     */
+    public InputStream openStream(String url) throws IOException, InterruptedException {
+        HttpRequest request;
+        try {
+            request = request(url, Map.of());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Некорректный адрес " + url, e);
+        }
+        HttpResponse<InputStream> response = await(send(url, request, HttpResponse.BodyHandlers.ofInputStream()));
+        if (response.statusCode() >= 400) {
+            response.body().close();
+            throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+        }
+        return decode(response.body(), response.headers(), false);
+    }
+
+    /**
+     * robots.txt сайта; если файла нет или он недоступен - {@link RobotsTxt#EMPTY}.
+     */
+    public RobotsTxt fetchRobots(String siteUrl) {
+        String url;
+        try {
+            URI site = URI.create(siteUrl);
+            url = new URI(site.getScheme(), site.getAuthority(), "/robots.txt", null, null).toString();
+        } catch (Exception e) {
+            return RobotsTxt.EMPTY;
+        }
+        try {
+            HttpResponse<Body> response = await(send(url, request(url, Map.of()),
+                    bodyHandler(info -> info.statusCode() == 200)));
+            if (response.statusCode() != 200) {
+                return RobotsTxt.EMPTY;
+            }
+            try (InputStream body = decode(response)) {
+                return RobotsTxt.parse(new String(body.readAllBytes(), StandardCharsets.UTF_8), jsoupConfig.getUserAgent());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Не удалось загрузить " + url + " - " + e.getMessage());
+        }
+        return RobotsTxt.EMPTY;
+    }
+
+    private HttpRequest request(String url, Map<String, String> headers) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(fetcherConfig.getReadTimeout())
+                .header("Accept-Encoding", ACCEPT_ENCODING)
+                .GET();
+        if (jsoupConfig.getUserAgent() != null) {
+            request.header("User-Agent", jsoupConfig.getUserAgent());
+        }
+        if (jsoupConfig.getReferrer() != null) {
+            request.header("Referer", jsoupConfig.getReferrer());
+        }
+        headers.forEach(request::header);
+        return request.build();
+    }
+
+    /**
+     * Отправляет запрос и сообщает {@link HostRateController} время до получения заголовков ответа.
+     * Возвращается future самого HttpClient: её отмена прерывает обмен с сервером.
+     */
+    private <T> CompletableFuture<HttpResponse<T>> send(String url, HttpRequest request,
+                                                         HttpResponse.BodyHandler<T> handler) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<T>> exchange = client.sendAsync(request, info -> {
+            rateController.onResponse(url, info.statusCode(),
+                    Duration.ofNanos(System.nanoTime() - start), retryAfter(info.headers()));
+            return handler.apply(info);
+        });
+        inFlight.add(exchange);
+        exchange.whenComplete((response, e) -> {
+            inFlight.remove(exchange);
+            if (e instanceof HttpTimeoutException || e != null && e.getCause() instanceof HttpTimeoutException) {
+                rateController.onFailure(url);
+            }
+        });
+        return exchange;
+    }
+
+    /**
+     * Тело нужно только страницам, которые будут разбираться: у ответов 304 и ошибок
+     * с Content-Encoding: gzip оно бывает пустым, и распаковка упала бы с EOFException.
+     */
+    private boolean isPage(HttpResponse.ResponseInfo info) {
+        int status = info.statusCode();
+        String contentType = info.headers().firstValue("Content-Type").orElse(null);
+        return status < 400 && status != 304 && (contentType == null || isHtml(contentType));
+    }
+
+    /**
+     * Тело ответа в буфере, если wanted его принимает; иначе тело пропускается, и в ответе null.
+     */
+    private HttpResponse.BodyHandler<Body> bodyHandler(Predicate<HttpResponse.ResponseInfo> wanted) {
+        return info -> new BufferingSubscriber(wanted.test(info));
+    }
+
+    /**
+     * Retry-After в секундах или в виде HTTP-даты.
+     */
+    private Duration retryAfter(HttpHeaders headers) {
+        String value = headers.firstValue("Retry-After").orElse(null);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                Duration delay = Duration.between(ZonedDateTime.now(),
+                        ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+
+    private FetchResult toResult(String url, HttpResponse<Body> response) throws IOException {
+        int status = response.statusCode();
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+
+        if (status >= 400) {
+            throw new HttpStatusException("HTTP error fetching URL", status, url);
+        }
+        if (status == 304) {
+            return new FetchResult(status, etag, lastModified, null);
+        }
+        if (contentType != null && !isHtml(contentType)) {
+            throw new UnsupportedMimeTypeException("Unhandled content type", contentType, url);
+        }
+        try (InputStream body = decode(response)) {
+            return new FetchResult(status, etag, lastModified,
+                    Jsoup.parse(body, charset(contentType), response.uri().toString()));
+        }
+    }
+
+    /**
+     * Ожидает результат; при прерывании потока future отменяется вместе с запросом.
+     */
+    private <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private InputStream decode(HttpResponse<Body> response) throws IOException {
+        Body body = response.body();
+        InputStream decoded = decode(new ByteArrayInputStream(body.bytes()), response.headers(), body.truncated());
+        return new LimitedInputStream(decoded, fetcherConfig.getMaxBodySize());
+    }
+
+    /**
+     * Распаковывает тело по Content-Encoding. Сжатое тело, обрезанное по max-body-size,
+     * читается до места обрыва без EOFException.
+     */
+    private InputStream decode(InputStream body, HttpHeaders headers, boolean truncated) throws IOException {
+        String encoding = headers.firstValue("Content-Encoding").orElse("").toLowerCase(Locale.ROOT);
+        if (encoding.contains("gzip")) {
+            body = new GZIPInputStream(body);
+        } else if (encoding.contains("deflate")) {
+            body = new InflaterInputStream(body);
+        } else {
+            return body;
+        }
+        return truncated ? new TruncatedInputStream(body) : body;
+    }
+
+    private boolean isHtml(String contentType) {
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return type.startsWith("text/") || type.contains("xml");
+    }
+
+    private String charset(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String part : contentType.split(";")) {
+            String parameter = part.trim();
+            if (parameter.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                String charset = parameter.substring("charset=".length()).replace("\"", "").trim();
+                try {
+                    return Charset.isSupported(charset) ? charset : null;
+                } catch (IllegalCharsetNameException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Тело ответа: не больше max-body-size байт, truncated - если остальное не загружалось.
+     */
+    private record Body(byte[] bytes, boolean truncated) {
+    }
+
+    /**
+     * Собирает тело ответа в буфер по мере поступления данных. После max-body-size байт
+     * загрузка прекращается, как у Jsoup. Ненужное тело (keep = false) пропускается, ответ получает null.
+     * Тайм-аут запроса ограничивает только ожидание заголовков, поэтому на получение тела отводится
+     * ещё read-timeout: сервер, замолчавший посреди ответа, не занимает место хоста бесконечно.
+     */
+    private class BufferingSubscriber implements HttpResponse.BodySubscriber<Body> {
+        private final CompletableFuture<Body> result = new CompletableFuture<>();
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final boolean keep;
+        private final int limit;
+        private int received;
+        private volatile Flow.Subscription subscription;
+
+        BufferingSubscriber(boolean keep) {
+            this.keep = keep;
+            limit = fetcherConfig.getMaxBodySize() > 0 ? fetcherConfig.getMaxBodySize() : Integer.MAX_VALUE;
+        }
+
+        @Override
+        public CompletionStage<Body> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            long timeout = fetcherConfig.getReadTimeout().toMillis();
+            ScheduledFuture<?> deadline = deadlines.schedule(() -> fail(
+                    new HttpTimeoutException("Тело ответа не получено за " + timeout + " мс")), timeout, TimeUnit.MILLISECONDS);
+            result.whenComplete((body, e) -> deadline.cancel(false));
+            if (result.isDone()) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (ByteBuffer item : items) {
+                int length = Math.min(item.remaining(), limit - received);
+                if (keep) {
+                    byte[] bytes = new byte[length];
+                    item.get(bytes);
+                    buffer.write(bytes, 0, length);
+                } else {
+                    item.position(item.position() + length);
+                }
+                received += length;
+                if (item.hasRemaining() || received >= limit) {
+                    subscription.cancel();
+                    result.complete(keep ? new Body(buffer.toByteArray(), true) : null);
+                    return;
+                }
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(keep ? new Body(buffer.toByteArray(), false) : null);
+        }
+
+        private void fail(Throwable e) {
+            if (result.completeExceptionally(e) && subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+
+    /**
+     * Сжатое тело, обрезанное посреди потока: обрыв считается концом данных.
+     */
+    private static class TruncatedInputStream extends FilterInputStream {
+        TruncatedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (EOFException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                return super.read(b, off, len);
+            } catch (EOFException e) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Обрезает тело ответа до max-body-size байт, как это делает Jsoup.
+     */
+    private static class LimitedInputStream extends FilterInputStream {
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            remaining = limit > 0 ? limit : Long.MAX_VALUE;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package searchengine.services.fetch;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Директивы robots.txt, которые использует обход: Crawl-delay для нашего User-Agent
+ * (или для группы *) и адреса Sitemap.
+ */
+public record RobotsTxt(Duration crawlDelay, List<String> sitemaps) {
+    public static final RobotsTxt EMPTY = new RobotsTxt(null, List.of());
+
+    public static RobotsTxt parse(String text, String userAgent) {
+        String agent = userAgent == null ? "" : userAgent.toLowerCase(Locale.ROOT);
+        Map<String, Duration> delays = new HashMap<>();
+        List<String> sitemaps = new ArrayList<>();
+        List<String> group = new ArrayList<>();
+        boolean groupHasRules = false;
+
+        for (String line : text.split("\\r?\\n|\\r")) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            switch (key) {
+                case "user-agent" -> {
+                    if (groupHasRules) {
+                        group = new ArrayList<>();
+                        groupHasRules = false;
+                    }
+                    group.add(value.toLowerCase(Locale.ROOT));
+                }
+                case "crawl-delay" -> {
+                    groupHasRules = true;
+                    Duration delay = parseDelay(value);
+                    if (delay != null) {
+                        group.forEach(name -> delays.putIfAbsent(name, delay));
+                    }
+                }
+                case "sitemap" -> {
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                }
+                default -> groupHasRules = true;
+            }
+        }
+
+        Duration crawlDelay = delays.entrySet().stream()
+                .filter(e -> !e.getKey().equals("*") && !e.getKey().isEmpty() && agent.contains(e.getKey()))
+                .map(Map.Entry::getValue)
+                .findFirst()
+                .orElse(delays.get("*"));
+        return new RobotsTxt(crawlDelay, List.copyOf(sitemaps));
+    }
+
+    private static Duration parseDelay(String value) {
+        try {
+            double seconds = Double.parseDouble(value);
+            return seconds >= 0 ? Duration.ofMillis((long) (seconds * 1000)) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
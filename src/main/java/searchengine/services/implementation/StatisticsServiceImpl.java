@@ -2,21 +2,38 @@ package searchengine.services.implementation;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import searchengine.config.CacheSettings;
 import searchengine.config.SiteConfig;
 import searchengine.config.SitesList;
+import searchengine.dto.SiteCount;
 import searchengine.dto.statistics.DetailedStatisticsItem;
 import searchengine.dto.statistics.StatisticsData;
 import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.dto.statistics.TotalStatistics;
 import searchengine.model.SiteEntity;
 import searchengine.model.StatusEnum;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
 import searchengine.repositories.SiteRepository;
+import searchengine.services.IndexingService;
 import searchengine.services.StatisticsService;
+import searchengine.services.crawler.CrawlProgress;
 
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Статистика строится тремя запросами (сайты, число страниц и лемм по сайтам)
+ * и кэшируется на statistics-ttl, чтобы частый опрос панели не нагружал базу.
+ * Статус берётся из последнего поколения сайта, количество страниц и лемм - из действующего.
+ */
 @Service
 @RequiredArgsConstructor
 public class StatisticsServiceImpl implements StatisticsService {
@@ -24,19 +41,56 @@ public class StatisticsServiceImpl implements StatisticsService {
     private final SitesList sites;
 
     private final SiteRepository siteRepository;
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexingService indexingService;
+    private final CacheSettings cacheSettings;
+
+    private volatile StatisticsResponse snapshot;
+    private volatile long snapshotTime;
 
     @Override
     public StatisticsResponse getStatistics() {
+        StatisticsResponse current = snapshot;
+        if (current != null && System.nanoTime() - snapshotTime < cacheSettings.getStatisticsTtl().toNanos()) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot != current) {
+                return snapshot;
+            }
+            snapshot = buildStatistics();
+            snapshotTime = System.nanoTime();
+            return snapshot;
+        }
+    }
+
+    private StatisticsResponse buildStatistics() {
 
         TotalStatistics total = new TotalStatistics();
         total.setSites(sites.getSites().size());
-        total.setIndexing(true);
+        total.setIndexing(IndexingService.isRunning.get());
+
+        List<SiteEntity> siteEntities = siteRepository.findAll();
+        Map<String, SiteEntity> liveSites = siteEntities.stream()
+                .filter(SiteEntity::isLive)
+                .collect(Collectors.toMap(SiteEntity::getUrl, Function.identity(), (a, b) -> b));
+        Map<String, SiteEntity> latestSites = siteEntities.stream()
+                .collect(Collectors.toMap(SiteEntity::getUrl, Function.identity(),
+                        BinaryOperator.maxBy(Comparator.comparingInt(SiteEntity::getId))));
+        List<Integer> siteIds = Stream.concat(liveSites.values().stream(), latestSites.values().stream())
+                .map(SiteEntity::getId)
+                .distinct()
+                .toList();
+        Map<Integer, Long> pageCounts = countsBySite(siteIds.isEmpty() ? List.of() : pageRepository.countBySiteIds(siteIds));
+        Map<Integer, Long> lemmaCounts = countsBySite(siteIds.isEmpty() ? List.of() : lemmaRepository.countBySiteIds(siteIds));
 
         List<DetailedStatisticsItem> detailed = new ArrayList<>();
         List<SiteConfig> sitesList = sites.getSites();
 
         sitesList.forEach(s -> {
-            SiteEntity site = siteRepository.findByUrl(s.getUrl());
+            SiteEntity site = latestSites.get(s.getUrl());
+            SiteEntity live = liveSites.getOrDefault(s.getUrl(), site);
             DetailedStatisticsItem item = new DetailedStatisticsItem();
             item.setName(s.getName());
             item.setUrl(s.getUrl());
@@ -48,11 +102,17 @@ public class StatisticsServiceImpl implements StatisticsService {
             String error = "";
 
             if (site != null) {
-                pages = site.getPages().size();
-                lemmas = site.getLemmas().size();
+                pages = pageCounts.getOrDefault(live.getId(), 0L).intValue();
+                lemmas = lemmaCounts.getOrDefault(live.getId(), 0L).intValue();
                 status = site.getStatus().name();
                 statusTime = site.getStatusTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
                 error = site.getLastError() == null ? "" : site.getLastError();
+
+                CrawlProgress progress = indexingService.getProgress(site.getId());
+                if (progress != null) {
+                    item.setQueue(progress.queueSize());
+                    item.setPagesPerSecond(progress.pagesPerSecond());
+                }
             }
 
             item.setPages(pages);
@@ -73,4 +133,8 @@ public class StatisticsServiceImpl implements StatisticsService {
         response.setResult(true);
         return response;
     }
-}
\ No newline at end of file
+
+    private Map<Integer, Long> countsBySite(List<SiteCount> counts) {
+        return counts.stream().collect(Collectors.toMap(SiteCount::getSiteId, SiteCount::getCount));
+    }
+}
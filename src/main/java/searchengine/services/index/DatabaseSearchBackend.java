@@ -0,0 +1,64 @@
+package searchengine.services.index;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.dto.searching.LemmaFrequency;
+import searchengine.dto.searching.PageRankingResult;
+import searchengine.repositories.IndexRepository;
+import searchengine.repositories.LemmaRepository;
+import searchengine.repositories.PageRepository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Поиск запросами к таблицам lemma и search_index.
+ */
+@Component
+@RequiredArgsConstructor
+public class DatabaseSearchBackend implements SearchBackend {
+    private final PageRepository pageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final IndexRepository indexRepository;
+
+    @Override
+    public Map<Integer, Map<String, Integer>> getFrequencies(Collection<Integer> siteIds, Collection<String> lemmas) {
+        Map<Integer, Map<String, Integer>> result = new HashMap<>();
+        if (siteIds.isEmpty() || lemmas.isEmpty()) {
+            return result;
+        }
+        for (LemmaFrequency frequency : lemmaRepository.findFrequencies(siteIds, lemmas)) {
+            if (frequency.getFrequency() > 0) {
+                result.computeIfAbsent(frequency.getSiteId(), id -> new HashMap<>())
+                        .put(frequency.getLemma(), frequency.getFrequency());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int[] findPages(int siteId, String lemma) {
+        return pageRepository.findPageIdsBySiteIdAndLemma(siteId, lemma).stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    @Override
+    public float[] getRankings(int siteId, List<String> lemmas, int[] pageIds) {
+        float[] rankings = new float[pageIds.length];
+        if (pageIds.length == 0) {
+            return rankings;
+        }
+        List<Integer> ids = Arrays.stream(pageIds).boxed().toList();
+        for (PageRankingResult result : indexRepository.getTotalRankingForLemmasAndPages(lemmas, ids)) {
+            int index = Arrays.binarySearch(pageIds, result.getPageId());
+            if (index >= 0) {
+                rankings[index] = result.getTotalRanking().floatValue();
+            }
+        }
+        return rankings;
+    }
+}
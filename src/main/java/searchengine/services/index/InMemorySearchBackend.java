@@ -0,0 +1,176 @@
+package searchengine.services.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.services.crawler.CrawlExecutor;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Инвертированный индекс в памяти: для каждого сайта и леммы хранится {@link PostingList}.
+ * Загружается из search_index после старта приложения, пока загрузка не завершена,
+ * запросы выполняются через {@link DatabaseSearchBackend}. Изменения приходят от IndexWriter;
+ * поступившие во время загрузки применяются по порядку после неё. Если загрузка не удалась,
+ * до перезапуска приложения поиск выполняется через базу, а изменения не накапливаются.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(name = "search-settings.backend", havingValue = "memory", matchIfMissing = true)
+public class InMemorySearchBackend implements SearchBackend {
+    private final Map<Integer, Map<String, PostingList>> sites = new ConcurrentHashMap<>();
+    private final DatabaseSearchBackend database;
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final CrawlExecutor crawlExecutor;
+    private final List<Runnable> pendingUpdates = new ArrayList<>();
+    private volatile boolean loaded;
+    private volatile boolean failed;
+
+    public InMemorySearchBackend(DatabaseSearchBackend database, DataSource dataSource, CrawlExecutor crawlExecutor) {
+        this.database = database;
+        this.crawlExecutor = crawlExecutor;
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLoading() {
+        crawlExecutor.newThread("search-index-loader", this::load).start();
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        long[] rows = new long[1];
+        try {
+            // по возрастанию id страниц, чтобы записи только дописывались в конец списков:
+            // после переиндексации порядок строк в таблице с id страниц не совпадает
+            streamingJdbcTemplate.query("SELECT l.site_id, l.lemma, i.page_id, i.ranking " +
+                    "FROM search_index i JOIN lemma l ON l.id = i.lemma_id ORDER BY i.page_id", rs -> {
+                postingList(rs.getInt(1), rs.getString(2)).put(rs.getInt(3), Math.round(rs.getFloat(4)));
+                rows[0]++;
+            });
+            synchronized (pendingUpdates) {
+                pendingUpdates.forEach(Runnable::run);
+                pendingUpdates.clear();
+                loaded = true;
+            }
+            log.info("Индекс загружен в память: " + rows[0] + " записей за " + (System.currentTimeMillis() - start) + " мс");
+        } catch (Exception e) {
+            synchronized (pendingUpdates) {
+                failed = true;
+                pendingUpdates.clear();
+            }
+            sites.clear();
+            log.error("Не удалось загрузить индекс в память, до перезапуска поиск выполняется через базу - "
+                    + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<Integer, Map<String, Integer>> getFrequencies(Collection<Integer> siteIds, Collection<String> lemmas) {
+        if (!loaded) {
+            return database.getFrequencies(siteIds, lemmas);
+        }
+        Map<Integer, Map<String, Integer>> result = new HashMap<>();
+        for (Integer siteId : siteIds) {
+            for (String lemma : lemmas) {
+                PostingList list = find(siteId, lemma);
+                if (list != null && list.size() > 0) {
+                    result.computeIfAbsent(siteId, id -> new HashMap<>()).put(lemma, list.size());
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int[] findPages(int siteId, String lemma) {
+        if (!loaded) {
+            return database.findPages(siteId, lemma);
+        }
+        PostingList list = find(siteId, lemma);
+        return list == null ? new int[0] : list.read().pageIds();
+    }
+
+    @Override
+    public float[] getRankings(int siteId, List<String> lemmas, int[] pageIds) {
+        if (!loaded) {
+            return database.getRankings(siteId, lemmas, pageIds);
+        }
+        float[] rankings = new float[pageIds.length];
+        for (String lemma : lemmas) {
+            PostingList list = find(siteId, lemma);
+            if (list == null) {
+                continue;
+            }
+            Postings postings = list.read();
+            int[] ids = postings.pageIds();
+            int j = 0;
+            for (int i = 0; i < pageIds.length && j < ids.length; i++) {
+                while (j < ids.length && ids[j] < pageIds[i]) {
+                    j++;
+                }
+                if (j < ids.length && ids[j] == pageIds[i]) {
+                    rankings[i] += postings.rankings()[j];
+                }
+            }
+        }
+        return rankings;
+    }
+
+    /**
+     * Изменения группируются по леммам, так что каждый список перекодируется не больше одного раза
+     * на пачку, даже если повторно проиндексированные страницы оказываются в его середине.
+     */
+    @Override
+    public void onPagesChanged(int siteId, Map<Integer, ? extends Collection<String>> removed,
+                               Map<Integer, Map<String, Integer>> indexed) {
+        Map<String, PostingChanges> changes = new HashMap<>();
+        removed.forEach((pageId, lemmas) -> lemmas.forEach(lemma ->
+                changes.computeIfAbsent(lemma, l -> new PostingChanges()).remove(pageId)));
+        indexed.forEach((pageId, rankings) -> rankings.forEach((lemma, ranking) ->
+                changes.computeIfAbsent(lemma, l -> new PostingChanges()).put(pageId, ranking)));
+        update(() -> changes.forEach((lemma, lemmaChanges) -> postingList(siteId, lemma).apply(lemmaChanges)));
+    }
+
+    @Override
+    public void onSiteRemoved(int siteId) {
+        update(() -> sites.remove(siteId));
+    }
+
+    private void update(Runnable update) {
+        if (!loaded) {
+            synchronized (pendingUpdates) {
+                if (failed) {
+                    return;
+                }
+                if (!loaded) {
+                    pendingUpdates.add(update);
+                    return;
+                }
+            }
+        }
+        update.run();
+    }
+
+    private PostingList find(int siteId, String lemma) {
+        Map<String, PostingList> lemmas = sites.get(siteId);
+        return lemmas == null ? null : lemmas.get(lemma);
+    }
+
+    private PostingList postingList(int siteId, String lemma) {
+        return sites.computeIfAbsent(siteId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(lemma, l -> new PostingList());
+    }
+}
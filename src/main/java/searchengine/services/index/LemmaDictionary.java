@@ -0,0 +1,80 @@
+package searchengine.services.index;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Словарь лемм одного сайта: лемма → id строки в таблице lemma и счётчик
+ * изменений частоты, ещё не записанных в базу.
+ */
+public class LemmaDictionary {
+    private final int siteId;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public LemmaDictionary(int siteId) {
+        this.siteId = siteId;
+    }
+
+    public int getSiteId() {
+        return siteId;
+    }
+
+    public Entry entry(String lemma) {
+        return entries.computeIfAbsent(lemma, Entry::new);
+    }
+
+    public Entry find(String lemma) {
+        return entries.get(lemma);
+    }
+
+    void load(int id, String lemma) {
+        entry(lemma).id = id;
+    }
+
+    public Iterable<Entry> entries() {
+        return entries.values();
+    }
+
+    public static class Entry {
+        private final String lemma;
+        private final LongAdder frequencyDelta = new LongAdder();
+        private volatile int id;
+
+        private Entry(String lemma) {
+            this.lemma = lemma;
+        }
+
+        public String getLemma() {
+            return lemma;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public void increment() {
+            frequencyDelta.increment();
+        }
+
+        /**
+         * Забирает накопленное изменение частоты. Параллельные увеличения
+         * счётчика не теряются: вычитается ровно прочитанное значение.
+         */
+        public long takeFrequencyDelta() {
+            long delta = frequencyDelta.sum();
+            if (delta != 0) {
+                frequencyDelta.add(-delta);
+            }
+            return delta;
+        }
+
+        public void returnFrequencyDelta(long delta) {
+            frequencyDelta.add(delta);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package searchengine.services.index;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@RequiredArgsConstructor
+public class LemmaDictionaryRegistry {
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Integer, LemmaDictionary> dictionaries = new ConcurrentHashMap<>();
+
+    /**
+     * Словарь сайта, при первом обращении заполненный леммами из базы.
+     */
+    public LemmaDictionary forSite(int siteId) {
+        return dictionaries.computeIfAbsent(siteId, id -> {
+            LemmaDictionary dictionary = new LemmaDictionary(id);
+            jdbcTemplate.query("SELECT id, lemma FROM lemma WHERE site_id = ?",
+                    rs -> {
+                        dictionary.load(rs.getInt(1), rs.getString(2));
+                    }, id);
+            return dictionary;
+        });
+    }
+
+    /**
+     * Пустой словарь для сайта, данные которого удалены перед полной индексацией.
+     */
+    public LemmaDictionary reset(int siteId) {
+        LemmaDictionary dictionary = new LemmaDictionary(siteId);
+        dictionaries.put(siteId, dictionary);
+        return dictionary;
+    }
+
+    public void remove(int siteId) {
+        dictionaries.remove(siteId);
+    }
+
+    /**
+     * @return false, если словарь удалён или заменён: его изменения частот больше не записываются
+     */
+    public boolean isActive(LemmaDictionary dictionary) {
+        return dictionaries.get(dictionary.getSiteId()) == dictionary;
+    }
+
+    public Collection<LemmaDictionary> all() {
+        return dictionaries.values();
+    }
+}
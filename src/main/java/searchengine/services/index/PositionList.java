@@ -0,0 +1,30 @@
+package searchengine.services.index;
+
+import java.util.Arrays;
+
+/**
+ * Позиции (смещения начала слова в тексте страницы), на которых встречается лемма.
+ */
+public class PositionList {
+    private int[] positions = new int[4];
+    private int size;
+
+    public void add(int position) {
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, size * 2);
+        }
+        positions[size++] = position;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] encode() {
+        return VarIntCodec.encodeDeltas(positions, size);
+    }
+
+    public static int[] decode(byte[] bytes) {
+        return VarIntCodec.decodeDeltas(bytes);
+    }
+}
@@ -0,0 +1,41 @@
+package searchengine.services.index;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Накопленные изменения одного {@link PostingList}: для id страницы - новый ранг или удаление.
+ * Последнее изменение страницы заменяет предыдущие. Применяются к списку за один проход.
+ */
+final class PostingChanges {
+    static final int REMOVED = -1;
+
+    private final TreeMap<Integer, Integer> changes = new TreeMap<>();
+
+    void put(int pageId, int ranking) {
+        changes.put(pageId, ranking);
+    }
+
+    void remove(int pageId) {
+        changes.put(pageId, REMOVED);
+    }
+
+    boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    int size() {
+        return changes.size();
+    }
+
+    int firstPageId() {
+        return changes.firstKey();
+    }
+
+    /**
+     * @return изменения по возрастанию id страниц
+     */
+    Iterable<Map.Entry<Integer, Integer>> entries() {
+        return changes.entrySet();
+    }
+}
@@ -0,0 +1,55 @@
+package searchengine.services.index;
+
+import java.util.Arrays;
+
+/**
+ * Пересечение отсортированных списков id страниц.
+ * Для каждого элемента меньшего списка позиция в большем ищется галопом:
+ * шаг удваивается, пока не перешагнёт искомое значение, затем бинарный поиск.
+ */
+public final class PostingIntersection {
+    private PostingIntersection() {
+    }
+
+    public static int[] intersect(int[] a, int[] b) {
+        int[] small = a.length <= b.length ? a : b;
+        int[] large = a.length <= b.length ? b : a;
+        int[] result = new int[small.length];
+        int count = 0;
+        int position = 0;
+        for (int value : small) {
+            position = gallop(large, position, value);
+            if (position >= large.length) {
+                break;
+            }
+            if (large[position] == value) {
+                result[count++] = value;
+                position++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * @return индекс первого элемента, не меньшего value, начиная с from
+     */
+    static int gallop(int[] values, int from, int value) {
+        if (from >= values.length || values[from] >= value) {
+            return from;
+        }
+        int step = 1;
+        int low = from;
+        int high = from + step;
+        while (high < values.length && values[high] < value) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, values.length - 1);
+        if (values[high] < value) {
+            return values.length;
+        }
+        int index = Arrays.binarySearch(values, low + 1, high + 1, value);
+        return index >= 0 ? index : -index - 1;
+    }
+}
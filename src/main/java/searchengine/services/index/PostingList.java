@@ -0,0 +1,139 @@
+package searchengine.services.index;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Сжатый список страниц одной леммы: пары (разность id страницы, ранг) в формате varint.
+ * Чтение не блокируется: добавление в конец пишет за пределы опубликованной длины
+ * и затем публикует новый снимок.
+ */
+public class PostingList {
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    public synchronized void put(int pageId, int ranking) {
+        if (!append(pageId, ranking)) {
+            PostingChanges changes = new PostingChanges();
+            changes.put(pageId, ranking);
+            apply(changes);
+        }
+    }
+
+    public synchronized void remove(int pageId) {
+        PostingChanges changes = new PostingChanges();
+        changes.remove(pageId);
+        apply(changes);
+    }
+
+    /**
+     * Применяет изменения нескольких страниц: если все они дописываются в конец, список не
+     * перекодируется, иначе он раскодируется и собирается заново один раз на всю пачку.
+     */
+    synchronized void apply(PostingChanges changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Snapshot current = snapshot;
+        if (changes.firstPageId() > current.lastPageId()) {
+            for (Map.Entry<Integer, Integer> change : changes.entries()) {
+                if (change.getValue() != PostingChanges.REMOVED) {
+                    append(change.getKey(), change.getValue());
+                }
+            }
+            return;
+        }
+
+        Postings postings = read();
+        int[] oldPageIds = postings.pageIds();
+        int[] oldRankings = postings.rankings();
+        int[] pageIds = new int[oldPageIds.length + changes.size()];
+        int[] rankings = new int[pageIds.length];
+        int size = 0;
+        int i = 0;
+        for (Map.Entry<Integer, Integer> change : changes.entries()) {
+            int pageId = change.getKey();
+            while (i < oldPageIds.length && oldPageIds[i] < pageId) {
+                pageIds[size] = oldPageIds[i];
+                rankings[size++] = oldRankings[i++];
+            }
+            if (i < oldPageIds.length && oldPageIds[i] == pageId) {
+                i++;
+            }
+            if (change.getValue() != PostingChanges.REMOVED) {
+                pageIds[size] = pageId;
+                rankings[size++] = change.getValue();
+            }
+        }
+        while (i < oldPageIds.length) {
+            pageIds[size] = oldPageIds[i];
+            rankings[size++] = oldRankings[i++];
+        }
+        snapshot = encode(pageIds, rankings, size);
+    }
+
+    private boolean append(int pageId, int ranking) {
+        Snapshot current = snapshot;
+        if (pageId <= current.lastPageId()) {
+            return false;
+        }
+        byte[] data = current.data();
+        if (data.length - current.length() < 10) {
+            data = Arrays.copyOf(data, Math.max(16, data.length * 2));
+        }
+        int length = VarIntCodec.writeVarInt(data, current.length(), pageId - current.lastPageId());
+        length = VarIntCodec.writeVarInt(data, length, ranking);
+        snapshot = new Snapshot(data, length, current.size() + 1, pageId);
+        return true;
+    }
+
+    public Postings read() {
+        Snapshot current = snapshot;
+        int[] pageIds = new int[current.size()];
+        int[] rankings = new int[current.size()];
+        byte[] data = current.data();
+        int position = 0;
+        int pageId = 0;
+        for (int i = 0; i < current.size(); i++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            pageId += value;
+            pageIds[i] = pageId;
+
+            value = 0;
+            shift = 0;
+            do {
+                b = data[position++];
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            rankings[i] = value;
+        }
+        return new Postings(pageIds, rankings);
+    }
+
+    private static Snapshot encode(int[] pageIds, int[] rankings, int size) {
+        byte[] data = new byte[size * 10 + 10];
+        int length = 0;
+        int previous = 0;
+        for (int i = 0; i < size; i++) {
+            length = VarIntCodec.writeVarInt(data, length, pageIds[i] - previous);
+            length = VarIntCodec.writeVarInt(data, length, rankings[i]);
+            previous = pageIds[i];
+        }
+        return new Snapshot(data, length, size, size == 0 ? 0 : pageIds[size - 1]);
+    }
+
+    private record Snapshot(byte[] data, int length, int size, int lastPageId) {
+        static final Snapshot EMPTY = new Snapshot(new byte[0], 0, 0, 0);
+    }
+}
@@ -0,0 +1,12 @@
+package searchengine.services.index;
+
+/**
+ * Раскодированный список страниц леммы: id страниц по возрастанию и ранги.
+ */
+public record Postings(int[] pageIds, int[] rankings) {
+    public static final Postings EMPTY = new Postings(new int[0], new int[0]);
+
+    public int size() {
+        return pageIds.length;
+    }
+}
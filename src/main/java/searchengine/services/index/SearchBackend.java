@@ -0,0 +1,39 @@
+package searchengine.services.index;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Источник данных для ранжирования: списки страниц лемм, частоты и ранги.
+ * Выбирается настройкой search-settings.backend (memory или database).
+ */
+public interface SearchBackend {
+
+    /**
+     * @return для каждого сайта - число страниц, содержащих лемму; отсутствующие леммы не включаются
+     */
+    Map<Integer, Map<String, Integer>> getFrequencies(Collection<Integer> siteIds, Collection<String> lemmas);
+
+    /**
+     * @return id страниц сайта с леммой, по возрастанию
+     */
+    int[] findPages(int siteId, String lemma);
+
+    /**
+     * @param pageIds id страниц по возрастанию
+     * @return сумма рангов лемм для каждой страницы, в порядке pageIds
+     */
+    float[] getRankings(int siteId, List<String> lemmas, int[] pageIds);
+
+    /**
+     * Изменения индекса пачки страниц сайта: у страниц из removed удаляются прежние леммы,
+     * затем страницам из indexed добавляются леммы с рангами.
+     */
+    default void onPagesChanged(int siteId, Map<Integer, ? extends Collection<String>> removed,
+                                Map<Integer, Map<String, Integer>> indexed) {
+    }
+
+    default void onSiteRemoved(int siteId) {
+    }
+}
@@ -0,0 +1,52 @@
+package searchengine.services.index;
+
+import java.util.Arrays;
+
+/**
+ * Кодирование возрастающих последовательностей неотрицательных чисел:
+ * хранятся разности соседних значений в формате varint (7 бит на байт).
+ */
+public final class VarIntCodec {
+    private VarIntCodec() {
+    }
+
+    public static byte[] encodeDeltas(int[] values, int count) {
+        byte[] bytes = new byte[count * 5];
+        int position = 0;
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            position = writeVarInt(bytes, position, values[i] - previous);
+            previous = values[i];
+        }
+        return Arrays.copyOf(bytes, position);
+    }
+
+    public static int[] decodeDeltas(byte[] bytes) {
+        int[] values = new int[bytes.length];
+        int count = 0;
+        int position = 0;
+        int previous = 0;
+        while (position < bytes.length) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += value;
+            values[count++] = previous;
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    static int writeVarInt(byte[] bytes, int position, int value) {
+        while ((value & ~0x7f) != 0) {
+            bytes[position++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+}
@@ -0,0 +1,30 @@
+package searchengine.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LemmatizerTest {
+    private final Lemmatizer lemmatizer = new Lemmatizer(Caffeine.newBuilder().build());
+
+    @Test
+    void emptyNormalFormFallsBackToNormalForms() {
+        Map<String, Integer> lemmas = lemmatizer.lemmatize("t");
+
+        assertFalse(lemmas.containsKey(""));
+        assertEquals(Map.of("t", 1), lemmas);
+    }
+
+    @Test
+    void russianWordsAreNormalized() {
+        Map<String, Integer> lemmas = lemmatizer.lemmatize("Леопарды и леопард");
+
+        assertEquals(2, lemmas.get("леопард"));
+        assertTrue(lemmas.keySet().stream().noneMatch(String::isEmpty));
+    }
+}
@@ -0,0 +1,125 @@
+package searchengine.services.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SitemapReaderTest {
+    private final List<String> nested = new ArrayList<>();
+    private final List<SitemapEntry> entries = new ArrayList<>();
+
+    @Test
+    void urlsetEntriesAreReported() throws XMLStreamException {
+        boolean proceed = parse("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <url><loc> https://example.com/a </loc><lastmod>2024-05-01</lastmod></url>
+                  <url><loc>https://example.com/b</loc></url>
+                </urlset>
+                """);
+
+        assertTrue(proceed);
+        assertTrue(nested.isEmpty());
+        assertEquals(List.of("https://example.com/a", "https://example.com/b"),
+                entries.stream().map(SitemapEntry::url).toList());
+        assertNotNull(entries.get(0).lastModified());
+        assertNull(entries.get(1).lastModified());
+    }
+
+    @Test
+    void imageAndVideoLocationsDoNotReplacePageLocation() throws XMLStreamException {
+        parse("""
+                <urlset xmlns="http://www.sitemaps.org/schemas/sitemap/0.9"
+                        xmlns:image="http://www.google.com/schemas/sitemap-image/1.1"
+                        xmlns:video="http://www.google.com/schemas/sitemap-video/1.1">
+                  <url>
+                    <loc>https://example.com/item</loc>
+                    <image:image><image:loc>https://cdn.example.com/item.jpg</image:loc></image:image>
+                    <video:video><video:content_loc>https://cdn.example.com/item.mp4</video:content_loc></video:video>
+                  </url>
+                  <url>
+                    <image:image><image:loc>https://cdn.example.com/first.jpg</image:loc></image:image>
+                    <loc>https://example.com/second</loc>
+                  </url>
+                </urlset>
+                """);
+
+        assertEquals(List.of("https://example.com/item", "https://example.com/second"),
+                entries.stream().map(SitemapEntry::url).toList());
+    }
+
+    @Test
+    void sitemapIndexReportsNestedSitemaps() throws XMLStreamException {
+        parse("""
+                <sitemapindex xmlns="http://www.sitemaps.org/schemas/sitemap/0.9">
+                  <sitemap><loc>https://example.com/sitemap-1.xml</loc><lastmod>2024-05-01</lastmod></sitemap>
+                  <sitemap><loc>https://example.com/sitemap-2.xml.gz</loc></sitemap>
+                </sitemapindex>
+                """);
+
+        assertEquals(List.of("https://example.com/sitemap-1.xml", "https://example.com/sitemap-2.xml.gz"), nested);
+        assertTrue(entries.isEmpty());
+    }
+
+    @Test
+    void handlerStopsReading() throws XMLStreamException {
+        boolean proceed = SitemapReader.parse(stream("""
+                <urlset>
+                  <url><loc>https://example.com/a</loc></url>
+                  <url><loc>https://example.com/b</loc></url>
+                </urlset>
+                """), nested::add, entry -> {
+            entries.add(entry);
+            return false;
+        });
+
+        assertFalse(proceed);
+        assertEquals(1, entries.size());
+    }
+
+    @Test
+    void lastmodDateMeansEndOfDay() {
+        assertEquals(Instant.parse("2024-05-02T00:00:00Z"), SitemapReader.parseLastmod("2024-05-01"));
+    }
+
+    @Test
+    void lastmodWithOffsetIsConverted() {
+        assertEquals(Instant.parse("2024-05-01T07:00:00Z"), SitemapReader.parseLastmod("2024-05-01T10:00+03:00"));
+        assertEquals(Instant.parse("2024-05-01T10:00:30.5Z"), SitemapReader.parseLastmod("2024-05-01T10:00:30.5Z"));
+    }
+
+    @Test
+    void lastmodWithoutOffsetIsLocalTime() {
+        assertEquals(LocalDateTime.of(2024, 5, 1, 10, 0).atZone(ZoneId.systemDefault()).toInstant(),
+                SitemapReader.parseLastmod("2024-05-01T10:00"));
+    }
+
+    @Test
+    void invalidLastmodIsIgnored() {
+        assertNull(SitemapReader.parseLastmod(null));
+        assertNull(SitemapReader.parseLastmod(""));
+        assertNull(SitemapReader.parseLastmod("вчера"));
+        assertNull(SitemapReader.parseLastmod("2024-13-01"));
+    }
+
+    private boolean parse(String xml) throws XMLStreamException {
+        return SitemapReader.parse(stream(xml), nested::add, entries::add);
+    }
+
+    private static ByteArrayInputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.strip().getBytes(StandardCharsets.UTF_8));
+    }
+}
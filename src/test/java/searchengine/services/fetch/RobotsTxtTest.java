@@ -0,0 +1,84 @@
+package searchengine.services.fetch;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RobotsTxtTest {
+    private static final String AGENT = "SearchEngineBot/1.0";
+
+    @Test
+    void ownGroupTakesPrecedenceOverWildcard() {
+        RobotsTxt robots = RobotsTxt.parse("""
+                User-agent: *
+                Crawl-delay: 5
+
+                User-agent: SearchEngineBot
+                Crawl-delay: 0.5
+                Disallow: /private
+                """, AGENT);
+
+        assertEquals(Duration.ofMillis(500), robots.crawlDelay());
+    }
+
+    @Test
+    void wildcardGroupIsUsedForOtherAgents() {
+        RobotsTxt robots = RobotsTxt.parse("""
+                User-agent: Googlebot
+                Crawl-delay: 1
+
+                User-agent: *
+                Crawl-delay: 2
+                """, AGENT);
+
+        assertEquals(Duration.ofSeconds(2), robots.crawlDelay());
+    }
+
+    @Test
+    void consecutiveUserAgentsShareGroup() {
+        RobotsTxt robots = RobotsTxt.parse("""
+                User-agent: Googlebot
+                User-agent: searchenginebot
+                Crawl-delay: 3
+                """, AGENT);
+
+        assertEquals(Duration.ofSeconds(3), robots.crawlDelay());
+    }
+
+    @Test
+    void rulesCloseGroup() {
+        RobotsTxt robots = RobotsTxt.parse("""
+                User-agent: SearchEngineBot
+                Disallow: /tmp
+                User-agent: *
+                Crawl-delay: 4
+                """, AGENT);
+
+        assertEquals(Duration.ofSeconds(4), robots.crawlDelay());
+    }
+
+    @Test
+    void invalidDelayAndCommentsAreIgnored() {
+        RobotsTxt robots = RobotsTxt.parse("""
+                # комментарий
+                User-agent: * # все
+                Crawl-delay: soon
+                Crawl-delay: -1
+                """, AGENT);
+
+        assertNull(robots.crawlDelay());
+    }
+
+    @Test
+    void sitemapsAreCollectedOutsideGroups() {
+        RobotsTxt robots = RobotsTxt.parse("User-agent: *\r\nSitemap: https://example.com/sitemap.xml\r\n"
+                + "sitemap:https://example.com/news.xml\r\nSitemap:\r\n", AGENT);
+
+        assertEquals(List.of("https://example.com/sitemap.xml", "https://example.com/news.xml"), robots.sitemaps());
+        assertNull(robots.crawlDelay());
+    }
+}
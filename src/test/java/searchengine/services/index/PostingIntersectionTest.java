@@ -0,0 +1,68 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PostingIntersectionTest {
+
+    @Test
+    void emptyListGivesEmptyResult() {
+        assertArrayEquals(new int[0], PostingIntersection.intersect(new int[0], new int[]{1, 2, 3}));
+        assertArrayEquals(new int[0], PostingIntersection.intersect(new int[]{1, 2, 3}, new int[0]));
+        assertArrayEquals(new int[0], PostingIntersection.intersect(new int[0], new int[0]));
+    }
+
+    @Test
+    void disjointListsGiveEmptyResult() {
+        assertArrayEquals(new int[0], PostingIntersection.intersect(new int[]{1, 3, 5}, new int[]{2, 4, 6}));
+        assertArrayEquals(new int[0], PostingIntersection.intersect(new int[]{1, 2}, new int[]{10, 20, 30}));
+        assertArrayEquals(new int[0], PostingIntersection.intersect(new int[]{10, 20, 30}, new int[]{1, 2}));
+    }
+
+    @Test
+    void skewedSizesMatchLinearMerge() {
+        int[] large = IntStream.range(0, 100_000).map(i -> i * 3).toArray();
+        int[] small = {0, 2, 3, 299_997, 299_998, 150_000, 400_000};
+        Arrays.sort(small);
+
+        assertArrayEquals(new int[]{0, 3, 150_000, 299_997}, PostingIntersection.intersect(small, large));
+        assertArrayEquals(new int[]{0, 3, 150_000, 299_997}, PostingIntersection.intersect(large, small));
+    }
+
+    @Test
+    void randomListsMatchLinearMerge() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int[] a = randomSortedIds(random, random.nextInt(50));
+            int[] b = randomSortedIds(random, random.nextInt(5000));
+
+            assertArrayEquals(mergeIntersect(a, b), PostingIntersection.intersect(a, b));
+        }
+    }
+
+    @Test
+    void gallopFindsFirstNotSmallerValue() {
+        int[] values = {1, 3, 5, 7, 9, 11, 13};
+
+        assertEquals(0, PostingIntersection.gallop(values, 0, 0));
+        assertEquals(2, PostingIntersection.gallop(values, 0, 5));
+        assertEquals(3, PostingIntersection.gallop(values, 1, 6));
+        assertEquals(6, PostingIntersection.gallop(values, 2, 13));
+        assertEquals(values.length, PostingIntersection.gallop(values, 0, 14));
+        assertEquals(4, PostingIntersection.gallop(values, 4, 2));
+    }
+
+    private static int[] randomSortedIds(Random random, int count) {
+        return random.ints(count, 1, 10_000).sorted().distinct().toArray();
+    }
+
+    private static int[] mergeIntersect(int[] a, int[] b) {
+        return Arrays.stream(a).filter(value -> Arrays.binarySearch(b, value) >= 0).toArray();
+    }
+}
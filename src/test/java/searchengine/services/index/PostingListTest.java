@@ -0,0 +1,123 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PostingListTest {
+
+    @Test
+    void appendedPagesAreReadInOrder() {
+        PostingList list = new PostingList();
+        list.put(1, 3);
+        list.put(200, 1);
+        list.put(Integer.MAX_VALUE, 7);
+
+        Postings postings = list.read();
+        assertArrayEquals(new int[]{1, 200, Integer.MAX_VALUE}, postings.pageIds());
+        assertArrayEquals(new int[]{3, 1, 7}, postings.rankings());
+        assertEquals(3, list.size());
+    }
+
+    @Test
+    void outOfOrderPutIsInsertedInPlace() {
+        PostingList list = new PostingList();
+        list.put(10, 1);
+        list.put(30, 3);
+        list.put(20, 2);
+        list.put(5, 4);
+        list.put(40, 5);
+
+        Postings postings = list.read();
+        assertArrayEquals(new int[]{5, 10, 20, 30, 40}, postings.pageIds());
+        assertArrayEquals(new int[]{4, 1, 2, 3, 5}, postings.rankings());
+    }
+
+    @Test
+    void putOfExistingPageReplacesRanking() {
+        PostingList list = new PostingList();
+        list.put(10, 1);
+        list.put(20, 2);
+        list.put(10, 9);
+
+        Postings postings = list.read();
+        assertArrayEquals(new int[]{10, 20}, postings.pageIds());
+        assertArrayEquals(new int[]{9, 2}, postings.rankings());
+    }
+
+    @Test
+    void removeKeepsOtherPages() {
+        PostingList list = new PostingList();
+        list.put(10, 1);
+        list.put(20, 2);
+        list.put(30, 3);
+
+        list.remove(20);
+        list.remove(25);
+        assertArrayEquals(new int[]{10, 30}, list.read().pageIds());
+
+        list.remove(30);
+        list.put(25, 4);
+        assertArrayEquals(new int[]{10, 25}, list.read().pageIds());
+        assertArrayEquals(new int[]{1, 4}, list.read().rankings());
+
+        list.remove(10);
+        list.remove(25);
+        assertEquals(0, list.size());
+        list.put(1, 1);
+        assertArrayEquals(new int[]{1}, list.read().pageIds());
+    }
+
+    @Test
+    void batchAppliesRemovalsAndPutsInOnePass() {
+        PostingList list = new PostingList();
+        for (int pageId = 1; pageId <= 10; pageId++) {
+            list.put(pageId, pageId);
+        }
+
+        PostingChanges changes = new PostingChanges();
+        changes.remove(3);
+        changes.put(3, 30);
+        changes.put(5, 50);
+        changes.remove(5);
+        changes.remove(7);
+        changes.put(12, 120);
+        list.apply(changes);
+
+        Postings postings = list.read();
+        assertArrayEquals(new int[]{1, 2, 3, 4, 6, 8, 9, 10, 12}, postings.pageIds());
+        assertArrayEquals(new int[]{1, 2, 30, 4, 6, 8, 9, 10, 120}, postings.rankings());
+    }
+
+    @Test
+    void randomUpdatesMatchSortedMap() {
+        Random random = new Random(11);
+        PostingList list = new PostingList();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int pageId = 1 + random.nextInt(1000);
+            if (random.nextInt(3) == 0) {
+                list.remove(pageId);
+                expected.remove(pageId);
+            } else {
+                int ranking = random.nextInt(100);
+                list.put(pageId, ranking);
+                expected.put(pageId, ranking);
+            }
+        }
+
+        Postings postings = list.read();
+        assertEquals(expected.size(), list.size());
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getKey(), postings.pageIds()[i]);
+            assertEquals(entry.getValue(), postings.rankings()[i]);
+            i++;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package searchengine.services.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VarIntCodecTest {
+
+    @Test
+    void roundTripKeepsValues() {
+        int[] values = {0, 1, 127, 128, 300, 16_383, 16_384, 2_097_151, 2_097_152, 1_000_000_000};
+
+        assertArrayEquals(values, VarIntCodec.decodeDeltas(VarIntCodec.encodeDeltas(values, values.length)));
+    }
+
+    @Test
+    void roundTripKeepsLargeIds() {
+        int[] values = {1, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+
+        assertArrayEquals(values, VarIntCodec.decodeDeltas(VarIntCodec.encodeDeltas(values, values.length)));
+        assertArrayEquals(new int[]{Integer.MAX_VALUE},
+                VarIntCodec.decodeDeltas(VarIntCodec.encodeDeltas(new int[]{Integer.MAX_VALUE}, 1)));
+    }
+
+    @Test
+    void roundTripKeepsRandomSequences() {
+        Random random = new Random(7);
+        for (int round = 0; round < 100; round++) {
+            int[] values = random.ints(random.nextInt(1000), 0, Integer.MAX_VALUE).sorted().toArray();
+
+            assertArrayEquals(values, VarIntCodec.decodeDeltas(VarIntCodec.encodeDeltas(values, values.length)));
+        }
+    }
+
+    @Test
+    void onlyCountValuesAreEncoded() {
+        int[] values = {5, 10, 15, 20};
+
+        assertArrayEquals(new int[]{5, 10}, VarIntCodec.decodeDeltas(VarIntCodec.encodeDeltas(values, 2)));
+        assertEquals(0, VarIntCodec.encodeDeltas(values, 0).length);
+    }
+
+    @Test
+    void smallDeltasTakeOneByte() {
+        int[] values = {100, 200, 300};
+
+        assertEquals(3, VarIntCodec.encodeDeltas(values, values.length).length);
+    }
+
+    @Test
+    void writeVarIntUsesSevenBitsPerByte() {
+        byte[] bytes = new byte[5];
+
+        assertEquals(1, VarIntCodec.writeVarInt(bytes, 0, 127));
+        assertEquals(2, VarIntCodec.writeVarInt(bytes, 0, 128));
+        assertEquals(5, VarIntCodec.writeVarInt(bytes, 0, Integer.MAX_VALUE));
+    }
+}